@@ -0,0 +1,428 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples;
+
+import com.aoapps.lang.validation.ValidationException;
+import com.aoapps.net.DomainName;
+import com.aoapps.net.Email;
+import com.aoapps.net.InetAddress;
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import com.aoindustries.aoserv.client.billing.PackageDefinition;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.PosixPath;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import com.aoindustries.aoserv.examples.progress.SynchronizedProgressListener;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * The layout of an existing reference account, compiled once and then used to
+ * create any number of new accounts that look the same.  The reference account's
+ * <code>PackageDefinition</code>, server, Linux group, JVM and FTP users, and
+ * Tomcat site settings are resolved when the template is compiled; each new account
+ * only substitutes its own name for the reference's name.
+ *
+ * <p>For example, a reference account <code>ACME</code> with group <code>acme</code>,
+ * users <code>acme</code> and <code>acme_ftp</code>, and site <code>acme</code>
+ * compiled with the token <code>"acme"</code> creates, for the token
+ * <code>"globex"</code>, group <code>globex</code>, users <code>globex</code> and
+ * <code>globex_ftp</code>, and a site named from <code>globex</code>.</p>
+ *
+ * @see  CreateAccount
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AccountTemplate {
+
+  /**
+   * The tables read when compiling a template, in addition to those used by
+   * {@link CreateAccount}.
+   */
+  public static final Set<TableWarmup.Table> TABLES;
+
+  static {
+    Set<TableWarmup.Table> tables = EnumSet.copyOf(CreateAccount.TABLES);
+    tables.add(TableWarmup.Table.HTTPD_SITE);
+    tables.add(TableWarmup.Table.HTTPD_TOMCAT_SITE);
+    TABLES = Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * A name of the reference account with the substitution token removed.
+   */
+  private static final class Pattern {
+
+    private final String prefix;
+    private final String suffix;
+    private final boolean upperCase;
+
+    /**
+     * @throws  IllegalArgumentException  when the name does not contain the token, ignoring case
+     */
+    private Pattern(String name, String token) {
+      int index = name.toLowerCase(Locale.ROOT).indexOf(token.toLowerCase(Locale.ROOT));
+      if (index == -1) {
+        throw new IllegalArgumentException("Reference name does not contain \"" + token + "\": " + name);
+      }
+      this.prefix = name.substring(0, index);
+      this.suffix = name.substring(index + token.length());
+      String matched = name.substring(index, index + token.length());
+      this.upperCase = matched.equals(matched.toUpperCase(Locale.ROOT))
+          && !matched.equals(matched.toLowerCase(Locale.ROOT));
+    }
+
+    private String apply(String token) {
+      return prefix + (upperCase ? token.toUpperCase(Locale.ROOT) : token.toLowerCase(Locale.ROOT)) + suffix;
+    }
+  }
+
+  /**
+   * Compiles the layout of a reference account into a template.
+   *
+   * @param  conn       the <code>AoservConnector</code> to communicate with
+   * @param  reference  the accounting code of the reference account
+   * @param  token      the part of each of the reference account's names that is replaced for
+   *                    each new account, matched without regard to case
+   *
+   * @throws  IllegalArgumentException  when a name of the reference account does not contain <code>token</code>
+   */
+  public static AccountTemplate compile(AoservConnector conn, Account.Name reference, String token)
+      throws IOException, SQLException {
+    // Load the tables concurrently instead of on demand
+    TableWarmup.warmup(conn, TABLES);
+
+    // Resolve the Account
+    Account account = conn.getAccount().getAccount().get(reference);
+    if (account == null) {
+      throw new SQLException("Unable to find Account: " + reference);
+    }
+    Account parent = account.getParent();
+    if (parent == null) {
+      throw new SQLException("Unable to find parent Account: " + reference);
+    }
+
+    // Find the Tomcat site of the reference account
+    Package pk = null;
+    Site site = null;
+    com.aoindustries.aoserv.client.web.tomcat.Site tomcatSite = null;
+    for (Package p : account.getPackages()) {
+      for (Site s : p.getHttpdSites()) {
+        com.aoindustries.aoserv.client.web.tomcat.Site ts = s.getHttpdTomcatSite();
+        if (ts != null && ts.getHttpdTomcatStdSite() != null) {
+          pk = p;
+          site = s;
+          tomcatSite = ts;
+          break;
+        }
+      }
+      if (site != null) {
+        break;
+      }
+    }
+    if (site == null) {
+      throw new SQLException("Unable to find Tomcat standard Site: " + reference);
+    }
+
+    // Find the FTP only user sharing the site's group
+    Group group = site.getLinuxServerGroup().getLinuxGroup();
+    User ftpUser = null;
+    for (com.aoindustries.aoserv.client.account.User un : pk.getUsers()) {
+      User la = un.getLinuxAccount();
+      if (
+          la != null
+              && UserType.FTPONLY.equals(la.getType().getName())
+              && group.equals(la.getPrimaryGroup())
+      ) {
+        ftpUser = la;
+        break;
+      }
+    }
+    if (ftpUser == null) {
+      throw new SQLException("Unable to find FTP only User: " + reference);
+    }
+
+    Server linuxServer = site.getLinuxServer();
+    return new AccountTemplate(
+        parent.getName(),
+        pk.getPackageDefinition(),
+        linuxServer.getHostname().toString(),
+        linuxServer.getHost().getOperatingSystemVersion().getHttpdSitesDirectory(),
+        tomcatSite.getHttpdTomcatVersion().getTechnologyVersion(conn).getVersion(),
+        site.getServerAdmin(),
+        new Pattern(reference.toString(), token),
+        new Pattern(group.getName().toString(), token),
+        new Pattern(site.getLinuxServerAccount().getLinuxAccount().getUsername_id().toString(), token),
+        new Pattern(ftpUser.getUsername_id().toString(), token),
+        new Pattern(site.getName(), token)
+    );
+  }
+
+  /**
+   * One new account to create from the template.
+   */
+  public static final class Customer {
+
+    private final String token;
+    private final String jvmPassword;
+    private final String ftpPassword;
+    private final DomainName primaryHttpHostname;
+    private final DomainName[] altHttpHostnames;
+    private final InetAddress ipAddress;
+    private final String netDevice;
+    private final boolean ownsIpAddress;
+
+    /**
+     * @param  token                substituted for the template's token in each name
+     * @param  jvmPassword          the password for the JVM
+     * @param  ftpPassword          the password for the FTP access
+     * @param  primaryHttpHostname  the primary hostname for the HTTP server
+     * @param  altHttpHostnames     the alternate hostnames for the HTTP server, or <code>null</code> for none
+     * @param  ipAddress            the IP address the site will respond to
+     * @param  netDevice            the network device of the IP address
+     * @param  ownsIpAddress        if <code>true</code>, the IP address ownership will be changed to the
+     *                              newly created <code>Package</code>
+     */
+    public Customer(
+        String token,
+        String jvmPassword,
+        String ftpPassword,
+        DomainName primaryHttpHostname,
+        DomainName[] altHttpHostnames,
+        InetAddress ipAddress,
+        String netDevice,
+        boolean ownsIpAddress
+    ) {
+      this.token = token;
+      this.jvmPassword = jvmPassword;
+      this.ftpPassword = ftpPassword;
+      this.primaryHttpHostname = primaryHttpHostname;
+      this.altHttpHostnames = altHttpHostnames == null ? new DomainName[0] : altHttpHostnames.clone();
+      this.ipAddress = ipAddress;
+      this.netDevice = netDevice;
+      this.ownsIpAddress = ownsIpAddress;
+    }
+
+    @Override
+    public String toString() {
+      return token;
+    }
+
+    /**
+     * Gets the token substituted for the template's token in each name.
+     */
+    public String getToken() {
+      return token;
+    }
+  }
+
+  private final Account.Name parentAccount;
+  private final PackageDefinition packageDefinition;
+  private final String server;
+  private final PosixPath wwwDir;
+  private final String tomcatVersion;
+  private final Email serverAdmin;
+  private final Pattern accounting;
+  private final Pattern groupName;
+  private final Pattern jvmUsername;
+  private final Pattern ftpUsername;
+  private final Pattern siteName;
+
+  private AccountTemplate(
+      Account.Name parentAccount,
+      PackageDefinition packageDefinition,
+      String server,
+      PosixPath wwwDir,
+      String tomcatVersion,
+      Email serverAdmin,
+      Pattern accounting,
+      Pattern groupName,
+      Pattern jvmUsername,
+      Pattern ftpUsername,
+      Pattern siteName
+  ) {
+    this.parentAccount = parentAccount;
+    this.packageDefinition = packageDefinition;
+    this.server = server;
+    this.wwwDir = wwwDir;
+    this.tomcatVersion = tomcatVersion;
+    this.serverAdmin = serverAdmin;
+    this.accounting = accounting;
+    this.groupName = groupName;
+    this.jvmUsername = jvmUsername;
+    this.ftpUsername = ftpUsername;
+    this.siteName = siteName;
+  }
+
+  /**
+   * Gets the hostname of the server new accounts are created on.
+   */
+  public String getServer() {
+    return server;
+  }
+
+  /**
+   * Creates one account from the template.  The JVM and FTP accounts are added
+   * concurrently on the given executor.
+   *
+   * @param  conn      the <code>AoservConnector</code> to communicate with
+   * @param  listener  if provided, receives progress events during account creation, one at a time
+   * @param  executor  runs the steps that do not depend on each other
+   * @param  strength  if provided, the required strength of the passwords, checked before anything is created
+   * @param  customer  the new account
+   */
+  public void createAccount(
+      AoservConnector conn,
+      ProgressListener listener,
+      Executor executor,
+      PasswordChecker.PasswordStrength strength,
+      Customer customer
+  ) throws IOException, SQLException, ValidationException, InterruptedException {
+    // The steps report from the threads of the executor, so serialize the callbacks
+    create(conn, SynchronizedProgressListener.wrap(listener), executor, strength, customer);
+  }
+
+  /**
+   * Creates one account from the template, with a listener that already accepts concurrent calls.
+   */
+  private void create(
+      AoservConnector conn,
+      ProgressListener listener,
+      Executor executor,
+      PasswordChecker.PasswordStrength strength,
+      Customer customer
+  ) throws IOException, SQLException, ValidationException, InterruptedException {
+    String token = customer.token;
+    CreateAccount.createAccount(
+        conn,
+        listener,
+        executor,
+        strength,
+        Account.Name.valueOf(accounting.apply(token)),
+        server,
+        parentAccount,
+        packageDefinition,
+        wwwDir,
+        User.Name.valueOf(jvmUsername.apply(token)),
+        customer.jvmPassword,
+        User.Name.valueOf(ftpUsername.apply(token)),
+        customer.ftpPassword,
+        Group.Name.valueOf(groupName.apply(token)),
+        siteName.apply(token),
+        null, // mysqlAdminUsername: the MySQL steps of CreateAccount are not enabled
+        null, // mysqlAppUsername
+        null, // mysqlAppPassword
+        customer.ipAddress,
+        customer.netDevice,
+        customer.ownsIpAddress,
+        serverAdmin,
+        customer.primaryHttpHostname,
+        customer.altHttpHostnames.clone(),
+        tomcatVersion
+    );
+  }
+
+  /**
+   * Creates many accounts from the template concurrently.  The independent steps
+   * of each account also run concurrently, on a separate executor, so the
+   * executor is never waited on from within one of its own tasks.
+   * The failure of one account does not stop the others.
+   *
+   * @param  conn          the <code>AoservConnector</code> to communicate with
+   * @param  executor      the executor that creates the accounts
+   * @param  stepExecutor  the executor that runs the independent steps within each account,
+   *                       which must not be <code>executor</code>
+   * @param  cpuPool       the executor that performs the CPU-bound password checks
+   * @param  strength      the required strength of the passwords
+   * @param  listener      if provided, receives the progress events of all accounts, one at a time
+   * @param  customers     the new accounts
+   *
+   * @return  the outcome for each account, in the iteration order of <code>customers</code>
+   *
+   * @throws  IllegalArgumentException  when any password is weak, before anything is created
+   */
+  public Map<Customer, Outcome<Void>> createAccounts(
+      AoservConnector conn,
+      Executor executor,
+      Executor stepExecutor,
+      Executor cpuPool,
+      PasswordChecker.PasswordStrength strength,
+      ProgressListener listener,
+      Iterable<? extends Customer> customers
+  ) throws IOException, InterruptedException {
+    if (stepExecutor == executor) {
+      throw new IllegalArgumentException("stepExecutor must not be executor");
+    }
+
+    // Check all passwords before creating anything
+    Map<User.Name, String> passwords = new LinkedHashMap<>();
+    try {
+      for (Customer customer : customers) {
+        passwords.put(User.Name.valueOf(jvmUsername.apply(customer.token)), customer.jvmPassword);
+        passwords.put(User.Name.valueOf(ftpUsername.apply(customer.token)), customer.ftpPassword);
+      }
+    } catch (ValidationException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    PasswordBatch.requireStrong(cpuPool, passwords, strength);
+
+    // Shared by all accounts and their steps, so serialize the callbacks, once for all
+    ProgressListener sharedListener = SynchronizedProgressListener.wrap(listener);
+    return FanOut.run(
+        executor,
+        customers,
+        customer -> {
+          try {
+            // Already checked with the whole batch
+            create(conn, sharedListener, stepExecutor, null, customer);
+          } catch (ValidationException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioErr = new InterruptedIOException();
+            ioErr.initCause(e);
+            throw ioErr;
+          }
+          return null;
+        }
+    );
+  }
+}
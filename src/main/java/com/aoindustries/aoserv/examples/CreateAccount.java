@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2009, 2015, 2017, 2018, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2009, 2015, 2017, 2018, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -27,28 +27,59 @@ import com.aoapps.lang.validation.ValidationException;
 import com.aoapps.net.DomainName;
 import com.aoapps.net.Email;
 import com.aoapps.net.InetAddress;
-import com.aoapps.sql.SQLUtility;
+import com.aoapps.security.PasswordChecker;
 import com.aoindustries.aoserv.client.AoservConnector;
 import com.aoindustries.aoserv.client.SimpleAoservClient;
 import com.aoindustries.aoserv.client.account.Account;
 import com.aoindustries.aoserv.client.billing.PackageCategory;
 import com.aoindustries.aoserv.client.billing.PackageDefinition;
 import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.GroupServer;
 import com.aoindustries.aoserv.client.linux.GroupType;
 import com.aoindustries.aoserv.client.linux.PosixPath;
 import com.aoindustries.aoserv.client.linux.Shell;
 import com.aoindustries.aoserv.client.linux.User;
 import com.aoindustries.aoserv.client.linux.User.Gecos;
+import com.aoindustries.aoserv.client.linux.UserServer;
 import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Hedge;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.Retry;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.jfr.JfrProgressListener;
+import com.aoindustries.aoserv.examples.progress.PrintWriterProgressListener;
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import com.aoindustries.aoserv.examples.progress.Step;
+import com.aoindustries.aoserv.examples.progress.SynchronizedProgressListener;
+import com.aoindustries.aoserv.examples.trace.Span;
+import com.aoindustries.aoserv.examples.trace.Tracer;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Code to create an basic, but complete account with one web
  * site.  This is only representative of how to create an account.
  * AO Industries is not responsible for maintaining this code.
  *
+ * <p>Lookups, rebuild waits, and password changes are retried after a
+ * communication error.  Each add is retried only after looking up whether the
+ * earlier attempt succeeded, so a lost response does not abort the account
+ * half-created nor create anything twice.</p>
+ *
+ * @see  Retry#DEFAULT
+ *
  * @author  AO Industries, Inc.
  */
 public final class CreateAccount {
@@ -58,6 +89,25 @@ public final class CreateAccount {
     throw new AssertionError();
   }
 
+  /**
+   * The tables used when provisioning through an <code>AoservConnector</code>,
+   * loaded concurrently as the workflow starts.
+   */
+  public static final Set<TableWarmup.Table> TABLES = Collections.unmodifiableSet(EnumSet.of(
+      TableWarmup.Table.ACCOUNT,
+      TableWarmup.Table.USERNAME,
+      TableWarmup.Table.PACKAGE,
+      TableWarmup.Table.PACKAGE_CATEGORY,
+      TableWarmup.Table.PACKAGE_DEFINITION,
+      TableWarmup.Table.OPERATING_SYSTEM_VERSION,
+      TableWarmup.Table.HOST,
+      TableWarmup.Table.IP_ADDRESS,
+      TableWarmup.Table.LINUX_SERVER,
+      TableWarmup.Table.LINUX_GROUP,
+      TableWarmup.Table.LINUX_USER,
+      TableWarmup.Table.LINUX_USER_SERVER
+  ));
+
   /**
    * Creates an account, automatically allocating as many resources as possible.
    * More control of account layout may be obtained by customizing this code.
@@ -116,290 +166,494 @@ public final class CreateAccount {
       DomainName[] altHttpHostnames,
       String tomcatVersion
   ) throws IOException, SQLException, ValidationException {
-    final long startTime = System.currentTimeMillis();
-    final SimpleAoservClient client = conn.getSimpleClient();
+    createAccount(
+        conn,
+        out == null ? null : new PrintWriterProgressListener(out),
+        null,
+        accountingTemplate,
+        server,
+        parentAccount,
+        packageDefinitionCategory,
+        packageDefinitionName,
+        packageDefinitionVersion,
+        jvmUsername,
+        jvmPassword,
+        ftpUsername,
+        ftpPassword,
+        groupName,
+        siteNameTemplate,
+        mysqlAdminUsername,
+        mysqlAppUsername,
+        mysqlAppPassword,
+        ipAddress,
+        netDevice,
+        ownsIpAddress,
+        serverAdmin,
+        primaryHttpHostname,
+        altHttpHostnames,
+        tomcatVersion
+    );
+  }
+
+  /**
+   * Creates an account, automatically allocating as many resources as possible.
+   * More control of account layout may be obtained by customizing this code.
+   *
+   * @param  conn                the <code>AoservConnector</code> to communicate with
+   * @param  listener            if provided, receives progress events during account creation
+   * @param  strength            if provided, the required strength of the passwords, checked before anything is created
+   * @param  accountingTemplate  the beginning part of the accounting code
+   * @param  server              the hostname of the server to set up the account on
+   * @param  parentAccount      the accounting code of the parent business
+   * @param  packageDefinitionCategory  the category for the <code>PackageDefinition</code>
+   * @param  packageDefinitionName  the name of the <code>PackageDefinition</code>
+   * @param  packageDefinitionVersion  the version of the <code>PackageDefinition</code>.  Please note
+   *                                   that the combination of parentBusiness, packageDefinitionCategory,
+   *                                   packageDefinitionName, and packageDefinitionVersion uniquely
+   *                                   identifies one <code>PackageDefinition</code>
+   * @param  jvmUsername         the username the JVM will run as
+   * @param  jvmPassword         the password for the JVM
+   * @param  ftpUsername         the username that will be allowed to FTP only to the site
+   * @param  ftpPassword         the password for the FTP access
+   * @param  groupName           the name of the Linux group that the JVM and FTP accounts share
+   * @param  siteNameTemplate    the template used for site name creation
+   * @param  mysqlAdminUsername  the username of the existing User that is allowed to admin the new DB
+   * @param  mysqlAppUsername    the username that will have limited access to the database
+   * @param  mysqlAppPassword    the password associated with the newly created application user account
+   * @param  ipAddress           the IP address the site will respond to
+   * @param  ownsIpAddress       if <code>true</code>, the IP address ownership will be changed to the
+   *                             newly created <code>Package</code>
+   * @param  serverAdmin         the email address of the business_administrator who is responsible for web site maintenance
+   * @param  primaryHttpHostname  the primary hostname for the HTTP server
+   * @param  altHttpHostnames    the alternate hostnames for the HTTP server
+   * @param  tomcatVersion       the version of Tomcat to install
+   */
+  public static void createAccount(
+      AoservConnector conn,
+      ProgressListener listener,
+      PasswordChecker.PasswordStrength strength,
+      Account.Name accountingTemplate,
+      String server,
+      Account.Name parentAccount,
+      String packageDefinitionCategory,
+      String packageDefinitionName,
+      String packageDefinitionVersion,
+      User.Name jvmUsername,
+      String jvmPassword,
+      User.Name ftpUsername,
+      String ftpPassword,
+      Group.Name groupName,
+      String siteNameTemplate,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAdminUsername,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAppUsername,
+      String mysqlAppPassword,
+      InetAddress ipAddress,
+      String netDevice,
+      boolean ownsIpAddress,
+      Email serverAdmin,
+      DomainName primaryHttpHostname,
+      DomainName[] altHttpHostnames,
+      String tomcatVersion
+  ) throws IOException, SQLException, ValidationException {
+    // Load the tables concurrently instead of on demand
+    TableWarmup.warmup(conn, TABLES);
 
     // Resolve the parent account
-    final Account parent = conn.getAccount().getAccount().get(parentAccount);
+    final Account parent = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> conn.getAccount().getAccount().get(parentAccount));
     if (parent == null) {
       throw new SQLException("Unable to find Account: " + parentAccount);
     }
 
-    // Create the account
-    final Account.Name accounting = client.generateAccountingCode(accountingTemplate);
-    client.addAccount(accounting, null, server, parentAccount, false, false, true, true);
-    if (out != null) {
-      out.print("Account added, accounting=");
-      out.println(accounting);
-      out.flush();
-    }
-
     // Resolve the PackageDefinition
-    final PackageCategory pc = conn.getBilling().getPackageCategory().get(packageDefinitionCategory);
+    final PackageCategory pc = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> conn.getBilling().getPackageCategory().get(packageDefinitionCategory));
     if (pc == null) {
       throw new SQLException("Unable to find PackageCategory: " + packageDefinitionCategory);
     }
-    final PackageDefinition packageDefinition = parent.getPackageDefinition(pc, packageDefinitionName, packageDefinitionVersion);
+    final PackageDefinition packageDefinition = Hedge.LOOKUPS.idempotent(
+        Retry.DEFAULT,
+        () -> parent.getPackageDefinition(pc, packageDefinitionName, packageDefinitionVersion)
+    );
     if (packageDefinition == null) {
       throw new SQLException("Unable to find PackageDefinition: accounting=" + parentAccount + ", category="
           + packageDefinitionCategory + ", name=" + packageDefinitionName + ", version=" + packageDefinitionVersion);
     }
 
-    // Add a Package to the Account
-    final Account.Name packageName = client.generatePackageName(Account.Name.valueOf(accounting.toString() + '_'));
-    client.addPackage(
-        packageName,
-        accounting,
-        packageDefinition.getPkey()
-    );
-    if (out != null) {
-      out.print("Package added, name=");
-      out.println(packageName);
-      out.flush();
+    // Find the directory containing the websites
+    final DomainName hostname = DomainName.valueOf(server);
+    final PosixPath wwwDir = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> {
+      com.aoindustries.aoserv.client.linux.Server linuxServer = conn.getLinux().getServer().get(hostname);
+      if (linuxServer == null) {
+        throw new SQLException("Unable to find Server: " + server);
+      }
+      return linuxServer.getHost().getOperatingSystemVersion().getHttpdSitesDirectory();
+    });
+
+    try {
+      createAccount(
+          conn,
+          listener,
+          Runnable::run,
+          strength,
+          accountingTemplate,
+          server,
+          parentAccount,
+          packageDefinition,
+          wwwDir,
+          jvmUsername,
+          jvmPassword,
+          ftpUsername,
+          ftpPassword,
+          groupName,
+          siteNameTemplate,
+          mysqlAdminUsername,
+          mysqlAppUsername,
+          mysqlAppPassword,
+          ipAddress,
+          netDevice,
+          ownsIpAddress,
+          serverAdmin,
+          primaryHttpHostname,
+          altHttpHostnames,
+          tomcatVersion
+      );
+    } catch (InterruptedException e) {
+      // Not expected since every step runs in the calling thread
+      Thread.currentThread().interrupt();
+      InterruptedIOException ioErr = new InterruptedIOException();
+      ioErr.initCause(e);
+      throw ioErr;
     }
+  }
+
+  /**
+   * Creates an account from a <code>PackageDefinition</code> and website directory that have
+   * already been resolved, such as by an {@link AccountTemplate}.  The JVM and FTP accounts only
+   * depend on the Linux group, so they are added concurrently on the given executor.  The listener
+   * is called from those threads, so it must accept concurrent calls, such as one wrapped by
+   * {@link SynchronizedProgressListener#wrap(com.aoindustries.aoserv.examples.progress.ProgressListener)}.
+   *
+   * @param  executor           runs the steps that do not depend on each other, including the password checks
+   * @param  strength           if provided, the required strength of the passwords, checked before anything is created
+   * @param  packageDefinition  the <code>PackageDefinition</code> of <code>parentAccount</code> for the new <code>Package</code>
+   * @param  wwwDir             the directory containing the websites on <code>server</code>
+   *
+   * @throws  InterruptedException  when interrupted while waiting for the concurrent steps
+   */
+  static void createAccount(
+      AoservConnector conn,
+      ProgressListener listener,
+      Executor executor,
+      PasswordChecker.PasswordStrength strength,
+      Account.Name accountingTemplate,
+      String server,
+      Account.Name parentAccount,
+      PackageDefinition packageDefinition,
+      PosixPath wwwDir,
+      User.Name jvmUsername,
+      String jvmPassword,
+      User.Name ftpUsername,
+      String ftpPassword,
+      Group.Name groupName,
+      String siteNameTemplate,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAdminUsername,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAppUsername,
+      String mysqlAppPassword,
+      InetAddress ipAddress,
+      String netDevice,
+      boolean ownsIpAddress,
+      Email serverAdmin,
+      DomainName primaryHttpHostname,
+      DomainName[] altHttpHostnames,
+      String tomcatVersion
+  ) throws IOException, SQLException, ValidationException, InterruptedException {
+    // Trace the steps as children of one span
+    try (Span span = Span.start("CreateAccount.createAccount")) {
+      span.tag("server", server);
 
-    // Find the site_name that will be used
-    final String siteName = client.generateSiteName(siteNameTemplate);
+      // Check the passwords before creating anything
+      final Map<User.Name, String> passwords = new LinkedHashMap<>();
+      passwords.put(jvmUsername, jvmPassword);
+      passwords.put(ftpUsername, ftpPassword);
+      if (strength != null) {
+        PasswordBatch.requireStrong(executor, passwords, strength);
+      }
 
-    // Add the Linux group that the JVM and FTP account will use
-    client.addLinuxGroup(groupName, packageName, GroupType.USER);
-    if (out != null) {
-      out.print("Group added, name=");
-      out.println(groupName);
-      out.flush();
-    }
-    int linuxServerGroupId = client.addLinuxServerGroup(groupName, server);
-    if (out != null) {
-      out.print("LinuxServerGroup added, id=");
-      out.println(linuxServerGroupId);
-      out.flush();
-    }
+      final long startNanos = System.nanoTime();
+      final SimpleAoservClient client = conn.getSimpleClient();
 
-    // Add the Linux account that the JVM will run as
-    client.addUsername(packageName, jvmUsername);
-    if (out != null) {
-      out.print("Username added, username=");
-      out.println(jvmUsername);
-      out.flush();
-    }
-    client.addLinuxAccount(
-        jvmUsername,
-        groupName,
-        Gecos.valueOf(siteName + " Java VM"),
-        null, // officeLocation
-        null, // officePhone
-        null, // homePhone
-        UserType.USER,
-        Shell.BASH
-    );
-    if (out != null) {
-      out.print("User added, username=");
-      out.println(jvmUsername);
-      out.flush();
-    }
-    // Find the directory containing the websites
-    PosixPath wwwDir = conn.getLinux().getServer().get(
-        DomainName.valueOf(server)
-    ).getHost().getOperatingSystemVersion().getHttpdSitesDirectory();
-    int jvmLinuxServerAccountId = client.addLinuxServerAccount(
-        jvmUsername,
-        server,
-        PosixPath.valueOf(wwwDir.toString() + '/' + siteName)
-    );
-    if (out != null) {
-      out.print("UserServer added, id=");
-      out.println(jvmLinuxServerAccountId);
-      out.flush();
-    }
+      // Resolve the Server, used to find what an add created when its response is lost
+      final DomainName hostname = DomainName.valueOf(server);
+      final com.aoindustries.aoserv.client.linux.Server linuxServer = Hedge.LOOKUPS.idempotent(
+          Retry.DEFAULT,
+          () -> conn.getLinux().getServer().get(hostname)
+      );
+      if (linuxServer == null) {
+        throw new SQLException("Unable to find Server: " + server);
+      }
 
-    // Add the Linux account that will have FTP only access
-    client.addUsername(packageName, ftpUsername);
-    if (out != null) {
-      out.print("Username added, username=");
-      out.println(ftpUsername);
-      out.flush();
-    }
-    client.addLinuxAccount(
-        ftpUsername,
-        groupName,
-        Gecos.valueOf(siteName + " FTP"),
-        null,
-        null,
-        null,
-        UserType.FTPONLY,
-        Shell.FTPPASSWD
-    );
-    if (out != null) {
-      out.print("User added, username=");
-      out.println(ftpUsername);
-      out.flush();
-    }
-    client.addFtpGuestUser(ftpUsername);
-    if (out != null) {
-      out.print("User flagged as FtpGuestUser, username=");
-      out.println(ftpUsername);
-      out.flush();
-    }
-    int ftpLinuxServerAccountId = client.addLinuxServerAccount(
-        ftpUsername,
-        server,
-        PosixPath.valueOf(wwwDir.toString() + '/' + siteName + "/webapps")
-    );
-    if (out != null) {
-      out.print("UserServer added, id=");
-      out.println(ftpLinuxServerAccountId);
-      out.flush();
-    }
+      // Record each step to any running flight recording
+      final ProgressListener stepListener = JfrProgressListener.wrap(listener);
 
-    // Make sure the account rebuild is complete before continuing
-    if (out != null) {
-      out.print("Waiting for UserServer rebuild on ");
-      out.println(server);
-      out.flush();
-    }
-    client.waitForLinuxAccountRebuild(server);
-
-    // Set the passwords for the two new accounts
-    client.setLinuxServerAccountPassword(jvmUsername, server, jvmPassword);
-    if (out != null) {
-      out.print("Password set for UserServer ");
-      out.println(jvmUsername);
-      out.flush();
-    }
-    client.setLinuxServerAccountPassword(ftpUsername, server, ftpPassword);
-    if (out != null) {
-      out.print("Password set for UserServer ");
-      out.println(ftpUsername);
-      out.flush();
-    }
+      // Create the account
+      final Account.Name accounting = Retry.DEFAULT.idempotent(() -> client.generateAccountingCode(accountingTemplate));
+      step(stepListener, startNanos, Step.ACCOUNT_ADDED, () -> Retry.DEFAULT.add(
+          () -> {
+            client.addAccount(accounting, null, server, parentAccount, false, false, true, true);
+            return accounting;
+          },
+          () -> conn.getAccount().getAccount().get(accounting) == null ? null : accounting
+      ));
 
-    // Add the MySQL database
-    /*String mysqlDatabaseName = client.generateMysqlDatabaseName(siteName.replace('-', '_'), "_");
-    int mysqlDatabaseId = client.addMysqlDatabase(mysqlDatabaseName, server, packageName);
-    if (out != null) {
-      out.print("Database added, id=").println(mysqlDatabaseId).flush();
-    }
+      // Add a Package to the Account
+      final Account.Name packageTemplate = Account.Name.valueOf(accounting.toString() + '_');
+      final Account.Name packageName = Retry.DEFAULT.idempotent(() -> client.generatePackageName(packageTemplate));
+      step(stepListener, startNanos, Step.PACKAGE_ADDED, () -> Retry.DEFAULT.add(
+          () -> {
+            client.addPackage(
+                packageName,
+                accounting,
+                packageDefinition.getPkey()
+            );
+            return packageName;
+          },
+          () -> conn.getBilling().getPackage().get(packageName) == null ? null : packageName
+      ));
+
+      // Find the site_name that will be used
+      final String siteName = Retry.DEFAULT.idempotent(() -> client.generateSiteName(siteNameTemplate));
+
+      // Add the Linux group that the JVM and FTP account will use
+      step(stepListener, startNanos, Step.GROUP_ADDED, () -> Retry.DEFAULT.add(
+          () -> {
+            client.addLinuxGroup(groupName, packageName, GroupType.USER);
+            return groupName;
+          },
+          () -> conn.getLinux().getGroup().get(groupName) == null ? null : groupName
+      ));
+      step(stepListener, startNanos, Step.LINUX_SERVER_GROUP_ADDED, () -> Retry.DEFAULT.add(
+          () -> client.addLinuxServerGroup(groupName, server),
+          () -> {
+            Group lg = conn.getLinux().getGroup().get(groupName);
+            GroupServer lsg = lg == null ? null : lg.getLinuxServerGroup(linuxServer);
+            return lsg == null ? null : lsg.getPkey();
+          }
+      ));
 
-    // Create the MySQL database application user
-    if (client.isUsernameAvailable(mysqlAppUsername)) {
-      client.addUsername(packageName, mysqlAppUsername);
-      if (out != null) {
-        out.print("Username added, username=").println(mysqlAppUsername).flush();
+      // Add the Linux account that the JVM will run as, and the Linux account that will have FTP only access
+      final Gecos jvmGecos = Gecos.valueOf(siteName + " Java VM");
+      final PosixPath jvmHome = PosixPath.valueOf(wwwDir.toString() + '/' + siteName);
+      final Gecos ftpGecos = Gecos.valueOf(siteName + " FTP");
+      final PosixPath ftpHome = PosixPath.valueOf(wwwDir.toString() + '/' + siteName + "/webapps");
+      runAll(
+          executor,
+          () -> addLinuxAccount(conn, client, linuxServer, stepListener, startNanos, packageName, jvmUsername, groupName,
+              jvmGecos, UserType.USER, Shell.BASH, false, server, jvmHome),
+          () -> addLinuxAccount(conn, client, linuxServer, stepListener, startNanos, packageName, ftpUsername, groupName,
+              ftpGecos, UserType.FTPONLY, Shell.FTPPASSWD, true, server, ftpHome)
+      );
+
+      // Make sure the account rebuild is complete before continuing
+      if (stepListener != null) {
+        stepListener.progress(Step.LINUX_ACCOUNT_REBUILD_WAITING, server, System.nanoTime() - startNanos);
       }
-    }
-    client.addMysqlUser(mysqlAppUsername);
-    if (out != null) {
-      out.print("User added, username=").println(mysqlAppUsername).flush();
-    }
-    int mysqlServerUserId=client.addMysqlServerUser(mysqlAppUsername, server, MySQLHost.ANY_LOCAL_HOST);
-    if (out != null) {
-      out.print("UserServer added, id=").println(mysqlServerUserId).flush();
-    }
+      Retry.DEFAULT.idempotent(() -> {
+        RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(client, server);
+        return null;
+      });
 
-    // Grant permissions to the administrative MySQL user
-    client.addMysqlDbUser(
-      mysqlDatabaseName,
-      server,
-      mysqlAdminUsername,
-      true,
-      true,
-      true,
-      true,
-      true,
-      true,
-      true,
-      true,
-      true,
-      true
-    );
-    if (out != null) {
-      out.print("Granted full privileges to ").println(mysqlAdminUsername).flush();
-    }
+      // Set the passwords for the two new accounts
+      for (Outcome<User.Name> outcome : PasswordBatch.setPasswords(
+          executor,
+          passwords,
+          (username, password) -> setPassword(client, stepListener, startNanos, username, server, password)
+      ).values()) {
+        outcome.get();
+      }
 
-    // Grant permissions to the application MySQL user
-    client.addMysqlDbUser(
-      mysqlDatabaseName,
-      server,
-      mysqlAppUsername,
-      true,
-      true,
-      true,
-      true,
-      true,
-      false,
-      false,
-      true,
-      true,
-      true
-    );
-    if (out != null) {
-      out.print("Granted insert, update, select, delete, create, alter privileges to ").println(mysqlAppUsername).flush();
-    }
+      // The MySQL database and users are not created here, see AddMysqlDatabase and AddMysqlUser
 
-    // Make sure the MySQL system updates are complete before continuing
-    if (out != null) {
-      out.print("Waiting for UserServer rebuilds on ").println(server).flush();
-    }
-    client.waitForMysqlUserRebuild(server);
+      // Change the IP Address ownership if a private IP is being allotted
+      if (ownsIpAddress) {
+        step(stepListener, startNanos, Step.IP_ADDRESS_PACKAGE_SET, () -> Retry.DEFAULT.idempotent(() -> {
+          client.setIpAddressPackage(ipAddress, server, netDevice, packageName);
+          return packageName;
+        }));
+      }
 
-    // Set the password for the application MySQL user
-    client.setMysqlServerUserPassword(mysqlAppUsername, server, mysqlAppPassword);
-    if (out != null) {
-      out.print("Password set for UserServer ").println(mysqlAppUsername).flush();
-    }
-    */
-    // Change the IP Address ownership if a private IP is being allotted
-    if (ownsIpAddress) {
-      client.setIpAddressPackage(ipAddress, server, netDevice, packageName);
-      if (out != null) {
-        out.print("IpAddress package set, package=");
-        out.println(packageName);
-        out.flush();
+      // Create the site
+      step(stepListener, startNanos, Step.HTTPD_TOMCAT_STD_SITE_ADDED, () -> Retry.DEFAULT.add(
+          () -> client.addHttpdTomcatStdSite(
+              server,
+              siteName,
+              packageName,
+              jvmUsername,
+              groupName,
+              serverAdmin,
+              false,
+              ipAddress,
+              netDevice,
+              primaryHttpHostname,
+              altHttpHostnames,
+              tomcatVersion
+          ),
+          () -> {
+            Site site = linuxServer.getHttpdSite(siteName);
+            return site == null ? null : site.getPkey();
+          }
+      ));
+
+      // Wait for batched and processing updates to complete
+      if (stepListener != null) {
+        stepListener.progress(Step.HTTPD_SITE_REBUILD_WAITING, server, System.nanoTime() - startNanos);
       }
-    }
+      Retry.DEFAULT.idempotent(() -> {
+        RebuildNotifier.Type.HTTPD_SITE.waitFor(client, server);
+        return null;
+      });
 
-    // Create the site
-    int tomcatStdSiteId = client.addHttpdTomcatStdSite(
-        server,
-        siteName,
-        packageName,
-        jvmUsername,
-        groupName,
-        serverAdmin,
-        false,
-        ipAddress,
-        netDevice,
-        primaryHttpHostname,
-        altHttpHostnames,
-        tomcatVersion
-    );
-    if (out != null) {
-      out.print("HttpdTomcatStdSite added, id=");
-      out.println(tomcatStdSiteId);
-      out.flush();
+      // Set the access password for the site
+      // client.initializeHttpdSitePasswdFile(siteName, server, jvmUsername, jvmPassword);
+
+      if (stepListener != null) {
+        stepListener.progress(Step.DONE, null, System.nanoTime() - startNanos);
+      }
     }
+  }
 
-    // Wait for batched and processing updates to complete
-    if (out != null) {
-      out.print("Waiting for HttpdSite rebuilds on ");
-      out.println(server);
-      out.flush();
+  /**
+   * Performs one step in its own span, then reports it with the time spent on
+   * the step alone, which stays correct while other steps run concurrently.
+   * When there is no listener and no tracer, the step is only performed.
+   *
+   * @return  the value of the step, also reported as the ID of the entity affected
+   */
+  private static <V> V step(
+      ProgressListener listener,
+      long startNanos,
+      Step step,
+      Retry.Call<? extends V> call
+  ) throws IOException, SQLException {
+    if (listener == null && Tracer.getInstalled() == null) {
+      return call.call();
+    }
+    final long stepStartNanos = System.nanoTime();
+    final V id;
+    try (Span span = Span.start(step.name())) {
+      try {
+        id = call.call();
+      } catch (IOException | SQLException | RuntimeException e) {
+        span.error(e);
+        throw e;
+      }
+      span.tag("id", id);
+    }
+    if (listener != null) {
+      long nowNanos = System.nanoTime();
+      listener.progress(step, id, nowNanos - startNanos, nowNanos - stepStartNanos);
     }
-    client.waitForHttpdSiteRebuild(server);
+    return id;
+  }
 
-    // Set the access password for the site
-    // client.initializeHttpdSitePasswdFile(siteName, server, jvmUsername, jvmPassword);
-    // if (out != null) {
-    //   out.println("Initialized passwd file").flush();
-    // }
+  /**
+   * A provisioning step run by {@link #runAll}.
+   */
+  @FunctionalInterface
+  private interface Action {
+    void run() throws IOException, SQLException;
+  }
 
-    long timeSpan = System.currentTimeMillis() - startTime;
+  /**
+   * Runs independent steps on the executor, waiting for all to complete.
+   * The first failure is rethrown once every step has finished.
+   */
+  private static void runAll(Executor executor, Action ... actions) throws IOException, SQLException, InterruptedException {
+    for (Outcome<Void> outcome : FanOut.<Action, Void>run(
+        executor,
+        Arrays.asList(actions),
+        action -> {
+          action.run();
+          return null;
+        }
+    ).values()) {
+      outcome.get();
+    }
+  }
 
-    if (out != null) {
-      out.print("Done in ");
-      out.print(SQLUtility.formatDecimal3(timeSpan));
-      out.println(" seconds");
-      out.flush();
+  /**
+   * Adds a Linux account to the package and the server.
+   */
+  private static void addLinuxAccount(
+      AoservConnector conn,
+      SimpleAoservClient client,
+      com.aoindustries.aoserv.client.linux.Server linuxServer,
+      ProgressListener listener,
+      long startNanos,
+      Account.Name packageName,
+      User.Name username,
+      Group.Name groupName,
+      Gecos gecos,
+      String type,
+      PosixPath shell,
+      boolean ftpGuestUser,
+      String server,
+      PosixPath home
+  ) throws IOException, SQLException {
+    step(listener, startNanos, Step.USERNAME_ADDED, () -> Retry.DEFAULT.add(
+        () -> {
+          client.addUsername(packageName, username);
+          return username;
+        },
+        () -> conn.getAccount().getUser().get(username) == null ? null : username
+    ));
+    step(listener, startNanos, Step.LINUX_ACCOUNT_ADDED, () -> Retry.DEFAULT.add(
+        () -> {
+          client.addLinuxAccount(
+              username,
+              groupName,
+              gecos,
+              null, // officeLocation
+              null, // officePhone
+              null, // homePhone
+              type,
+              shell
+          );
+          return username;
+        },
+        () -> conn.getLinux().getUser().get(username) == null ? null : username
+    ));
+    if (ftpGuestUser) {
+      step(listener, startNanos, Step.FTP_GUEST_USER_ADDED, () -> Retry.DEFAULT.add(
+          () -> {
+            client.addFtpGuestUser(username);
+            return username;
+          },
+          () -> conn.getFtp().getGuestUser().get(username) == null ? null : username
+      ));
     }
+    step(listener, startNanos, Step.LINUX_SERVER_ACCOUNT_ADDED, () -> Retry.DEFAULT.add(
+        () -> client.addLinuxServerAccount(username, server, home),
+        () -> {
+          User la = conn.getLinux().getUser().get(username);
+          UserServer lsa = la == null ? null : la.getLinuxServerAccount(linuxServer);
+          return lsa == null ? null : lsa.getPkey();
+        }
+    ));
+  }
+
+  /**
+   * Sets the password of a Linux account on the server.
+   */
+  private static void setPassword(
+      SimpleAoservClient client,
+      ProgressListener listener,
+      long startNanos,
+      User.Name username,
+      String server,
+      String password
+  ) throws IOException, SQLException {
+    step(listener, startNanos, Step.LINUX_SERVER_ACCOUNT_PASSWORD_SET, () -> Retry.DEFAULT.idempotent(() -> {
+      client.setLinuxServerAccountPassword(username, server, password);
+      return username;
+    }));
   }
 }
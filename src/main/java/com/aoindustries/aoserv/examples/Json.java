@@ -0,0 +1,77 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples;
+
+/**
+ * Writes JSON values for the line-oriented exports, progress events, and trace spans.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Json {
+
+  /** Make no instances. */
+  private Json() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Appends a quoted JSON string, escaping quotes, backslashes, and control characters.
+   *
+   * @param  value  the value to append, or <code>null</code> to append <code>null</code>
+   */
+  public static void appendString(CharSequence value, StringBuilder sb) {
+    if (value == null) {
+      sb.append("null");
+      return;
+    }
+    sb.append('"');
+    for (int i = 0, len = value.length(); i < len; i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (ch < ' ') {
+            sb.append(String.format("\\u%04x", (int) ch));
+          } else {
+            sb.append(ch);
+          }
+      }
+    }
+    sb.append('"');
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples;
+
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.account.User;
+import com.aoindustries.aoserv.examples.concurrent.AdaptiveConcurrencyLimit;
+import com.aoindustries.aoserv.examples.concurrent.FairScheduler;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Checks and sets many passwords at once.
+ *
+ * <p>Password strength checks are CPU-bound and require no access to the master,
+ * so they are performed in parallel before anything is created.  A weak password
+ * then fails the whole batch up front instead of leaving behind accounts without
+ * passwords.  After the accounts are created and rebuilt, the passwords are set
+ * concurrently instead of one call at a time, with the number in flight on each
+ * server capped so that no one server is sent a burst of password sets.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PasswordBatch {
+
+  /**
+   * The default number of password sets in flight on any one server.
+   */
+  public static final int DEFAULT_MAX_PER_SERVER = 4;
+
+  /** Make no instances. */
+  private PasswordBatch() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Sets the password of one account, such as <code>UserServer::setPassword</code>.
+   *
+   * @param  <T>  the type of account
+   */
+  @FunctionalInterface
+  public interface Setter<T> {
+    /**
+     * Sets the password.
+     */
+    void setPassword(T target, String password) throws IOException, SQLException;
+  }
+
+  /**
+   * Gets the server of one account, which groups the password sets.
+   *
+   * @param  <T>  the type of account
+   * @param  <K>  the type of server
+   */
+  @FunctionalInterface
+  public interface ServerOf<T, K> {
+    /**
+     * Gets the server.
+     */
+    K getServer(T target) throws IOException, SQLException;
+  }
+
+  /**
+   * Gets the username of one password, which the password is checked against.
+   *
+   * @param  <T>  the type of account
+   */
+  @FunctionalInterface
+  public interface UsernameOf<T> {
+    /**
+     * Gets the username.
+     */
+    User.Name getUsername(T target);
+  }
+
+  /**
+   * Checks the strength of one password, before anything is created.
+   *
+   * @param  username  the username the password is for
+   * @param  password  the password to check
+   * @param  strength  the required strength
+   *
+   * @throws  IllegalArgumentException  when the password is weak
+   */
+  public static void requireStrong(
+      User.Name username,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException {
+    List<PasswordChecker.Result> results = PasswordChecker.checkPassword(username.toString(), password, strength);
+    if (PasswordChecker.hasResults(results)) {
+      throw new IllegalArgumentException("Weak password for " + username + ": " + results);
+    }
+  }
+
+  /**
+   * Checks the strength of all passwords in parallel.
+   *
+   * @param  cpuPool    the executor that performs the CPU-bound checks
+   * @param  passwords  the password for each username
+   * @param  strength   the required strength
+   *
+   * @return  the problems found for each username with a weak password, empty when all are acceptable
+   */
+  public static Map<User.Name, List<PasswordChecker.Result>> checkPasswords(
+      Executor cpuPool,
+      Map<? extends User.Name, String> passwords,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, InterruptedException {
+    return new LinkedHashMap<>(checkPasswords(cpuPool, passwords, username -> username, strength));
+  }
+
+  /**
+   * Checks the strength of all passwords in parallel, for accounts where the same
+   * username may be given more than once, each time with its own password.
+   *
+   * @param  cpuPool     the executor that performs the CPU-bound checks
+   * @param  passwords   the password for each account
+   * @param  usernameOf  gets the username of one account
+   * @param  strength    the required strength
+   *
+   * @return  the problems found for each account with a weak password, empty when all are acceptable
+   */
+  public static <T> Map<T, List<PasswordChecker.Result>> checkPasswords(
+      Executor cpuPool,
+      Map<T, String> passwords,
+      UsernameOf<? super T> usernameOf,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, InterruptedException {
+    List<T> order = new ArrayList<>(passwords.size());
+    List<CompletableFuture<List<PasswordChecker.Result>>> futures = new ArrayList<>(passwords.size());
+    for (Map.Entry<T, String> entry : passwords.entrySet()) {
+      T target = entry.getKey();
+      User.Name username = usernameOf.getUsername(target);
+      String password = entry.getValue();
+      order.add(target);
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          return PasswordChecker.checkPassword(username.toString(), password, strength);
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      }, cpuPool));
+    }
+    Map<T, List<PasswordChecker.Result>> weak = new LinkedHashMap<>();
+    for (int i = 0, size = order.size(); i < size; i++) {
+      List<PasswordChecker.Result> results;
+      try {
+        results = futures.get(i).get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+          cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException(cause);
+      }
+      if (PasswordChecker.hasResults(results)) {
+        weak.put(order.get(i), results);
+      }
+    }
+    return weak;
+  }
+
+  /**
+   * Checks the strength of all passwords in parallel, failing when any is weak.
+   * This should be called before any resources are created.
+   *
+   * @param  cpuPool    the executor that performs the CPU-bound checks
+   * @param  passwords  the password for each username
+   * @param  strength   the required strength
+   *
+   * @throws  IllegalArgumentException  when any password is weak
+   */
+  public static void requireStrong(
+      Executor cpuPool,
+      Map<? extends User.Name, String> passwords,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, InterruptedException {
+    requireStrong(cpuPool, passwords, username -> username, strength);
+  }
+
+  /**
+   * Checks the strength of all passwords in parallel, failing when any is weak,
+   * for accounts where the same username may be given more than once.
+   * This should be called before any resources are created.
+   *
+   * @param  cpuPool     the executor that performs the CPU-bound checks
+   * @param  passwords   the password for each account
+   * @param  usernameOf  gets the username of one account
+   * @param  strength    the required strength
+   *
+   * @throws  IllegalArgumentException  when any password is weak
+   */
+  public static <T> void requireStrong(
+      Executor cpuPool,
+      Map<T, String> passwords,
+      UsernameOf<? super T> usernameOf,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, InterruptedException {
+    Map<T, List<PasswordChecker.Result>> weak = checkPasswords(cpuPool, passwords, usernameOf, strength);
+    if (!weak.isEmpty()) {
+      StringBuilder message = new StringBuilder("Weak password for ").append(weak.size()).append(" user(s):");
+      for (Map.Entry<T, List<PasswordChecker.Result>> entry : weak.entrySet()) {
+        message.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+      }
+      throw new IllegalArgumentException(message.toString());
+    }
+  }
+
+  /**
+   * Sets all passwords concurrently.  The failure of one does not stop the others.
+   *
+   * @param  executor   the executor that performs the password sets
+   * @param  passwords  the password for each account
+   * @param  setter     sets the password of one account
+   *
+   * @return  the account or the failure for each account, in the iteration order of <code>passwords</code>
+   */
+  public static <T> Map<T, Outcome<T>> setPasswords(
+      Executor executor,
+      Map<T, String> passwords,
+      Setter<? super T> setter
+  ) throws InterruptedException {
+    return FanOut.run(executor, passwords.keySet(), target -> {
+      setter.setPassword(target, passwords.get(target));
+      return target;
+    });
+  }
+
+  /**
+   * Sets all passwords concurrently, with at most <code>maxPerServer</code> in
+   * flight on any one server, so that no one server is sent a burst of password
+   * sets.  Servers are served in turn, and the total in flight backs off when
+   * password sets slow down or fail.  The failure of one does not stop the others.
+   *
+   * @param  executor      the executor that performs the password sets
+   * @param  passwords     the password for each account
+   * @param  serverOf      gets the server of one account
+   * @param  maxPerServer  the maximum number of password sets in flight on any one server,
+   *                       such as {@link #DEFAULT_MAX_PER_SERVER}
+   * @param  setter        sets the password of one account
+   *
+   * @return  the account or the failure for each account, in the iteration order of <code>passwords</code>
+   */
+  public static <T, K> Map<T, Outcome<T>> setPasswords(
+      Executor executor,
+      Map<T, String> passwords,
+      ServerOf<? super T, ? extends K> serverOf,
+      int maxPerServer,
+      Setter<? super T> setter
+  ) throws InterruptedException {
+    if (maxPerServer < 1) {
+      throw new IllegalArgumentException("maxPerServer < 1: " + maxPerServer);
+    }
+    // Find the server of each account
+    Map<T, K> servers = new LinkedHashMap<>();
+    Map<T, Outcome<T>> outcomes = new LinkedHashMap<>();
+    for (T target : passwords.keySet()) {
+      outcomes.put(target, null);
+      long startNanos = System.nanoTime();
+      try {
+        servers.put(target, serverOf.getServer(target));
+      } catch (IOException | SQLException | RuntimeException e) {
+        outcomes.put(target, Outcome.failure(e, System.nanoTime() - startNanos));
+      }
+    }
+    if (servers.isEmpty()) {
+      return outcomes;
+    }
+
+    // Set concurrently, capped per server
+    int maxInFlight = maxPerServer * new HashSet<>(servers.values()).size();
+    FairScheduler<K> scheduler = new FairScheduler<>(
+        executor,
+        null,
+        new AdaptiveConcurrencyLimit(maxInFlight, 1, maxInFlight),
+        maxPerServer
+    );
+    outcomes.putAll(FanOut.run(scheduler, servers.keySet(), servers::get, target -> {
+      setter.setPassword(target, passwords.get(target));
+      return target;
+    }));
+    return outcomes;
+  }
+}
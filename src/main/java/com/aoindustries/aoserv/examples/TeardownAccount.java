@@ -0,0 +1,315 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.Removable;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import com.aoindustries.aoserv.client.email.Address;
+import com.aoindustries.aoserv.client.email.Domain;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.GroupServer;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.client.net.IpAddress;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Removes everything owned by accounts, the inverse of {@link CreateAccount}.
+ * This is only representative of how to decommission an account.
+ * AO Industries is not responsible for maintaining this code.
+ *
+ * <p>Resources are discovered up-front for all accounts, then removed in
+ * reverse-dependency order, one level at a time.  Within a level, the removals
+ * for all accounts are performed concurrently.  Rather than waiting for the
+ * daemons after each removal, each affected server is waited on once per
+ * rebuild type at the end.</p>
+ *
+ * <p>The packages themselves are left in place, since they are retained for
+ * billing history.  IP addresses owned by the packages are returned to a
+ * package provided by the caller.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TeardownAccount {
+
+  /** Make no instances. */
+  private TeardownAccount() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The removal levels, in the order performed.  Everything in a level may be
+   * removed concurrently, but only after all previous levels are complete.
+   */
+  private static final int
+      LEVEL_SITES = 0,
+      LEVEL_IP_ADDRESSES = 1,
+      LEVEL_ADDRESSES = 2,
+      LEVEL_DATABASES = 3,
+      LEVEL_SERVER_USERS = 4,
+      LEVEL_USERS = 5,
+      LEVEL_USERNAMES = 6,
+      NUM_LEVELS = 7;
+
+  /**
+   * The change made to one resource.
+   */
+  @FunctionalInterface
+  private interface Operation {
+    /**
+     * Removes or releases the resource.
+     */
+    void perform() throws IOException, SQLException;
+  }
+
+  /**
+   * One teardown step for one account.
+   */
+  private static final class Action {
+
+    private final Plan plan;
+    private final Object resource;
+    private final Operation operation;
+
+    private Action(Plan plan, Object resource, Operation operation) {
+      this.plan = plan;
+      this.resource = resource;
+      this.operation = operation;
+    }
+
+    @Override
+    public String toString() {
+      return plan.account.getName() + ": " + resource;
+    }
+  }
+
+  /**
+   * Everything to be removed for one account.
+   */
+  private static final class Plan {
+
+    private final Account account;
+    private final List<List<Action>> levels = new ArrayList<>(NUM_LEVELS);
+    private final Map<Server, Set<RebuildNotifier.Type>> rebuilds = new HashMap<>();
+    private int removed;
+    private Throwable error;
+
+    private Plan(Account account) {
+      this.account = account;
+      for (int i = 0; i < NUM_LEVELS; i++) {
+        levels.add(new ArrayList<>());
+      }
+    }
+
+    private void remove(int level, Removable resource, Server server, RebuildNotifier.Type type) {
+      levels.get(level).add(new Action(this, resource, resource::remove));
+      if (server != null && type != null) {
+        rebuilds.computeIfAbsent(server, s -> new HashSet<>()).add(type);
+      }
+    }
+  }
+
+  /**
+   * Discovers everything owned by the account.
+   */
+  private static Plan discover(Account account, Package ipPackage) throws IOException, SQLException {
+    Plan plan = new Plan(account);
+    for (Package pk : account.getPackages()) {
+      // Sites first, since they depend on the users and groups
+      for (Site site : pk.getHttpdSites()) {
+        plan.remove(LEVEL_SITES, site, site.getLinuxServer(), RebuildNotifier.Type.HTTPD_SITE);
+      }
+      // Return IP addresses once the sites using them are gone
+      if (ipPackage != null) {
+        for (IpAddress ip : pk.getIpAddresses()) {
+          plan.levels.get(LEVEL_IP_ADDRESSES).add(new Action(plan, ip, () -> ip.setPackage(ipPackage)));
+        }
+      }
+      // Email addresses, then their domains
+      for (Domain domain : pk.getEmailDomains()) {
+        for (Address address : domain.getEmailAddresses()) {
+          plan.remove(LEVEL_ADDRESSES, address, domain.getLinuxServer(), RebuildNotifier.Type.LINUX_ACCOUNT);
+        }
+        plan.remove(LEVEL_DATABASES, domain, domain.getLinuxServer(), RebuildNotifier.Type.LINUX_ACCOUNT);
+      }
+      // MySQL databases
+      for (com.aoindustries.aoserv.client.mysql.Database md : pk.getMysqlDatabases()) {
+        plan.remove(LEVEL_DATABASES, md, md.getMysqlServer().getLinuxServer(), RebuildNotifier.Type.MYSQL_USER);
+      }
+      // Users by username
+      for (com.aoindustries.aoserv.client.account.User un : pk.getUsers()) {
+        if (un.getAdministrator() != null) {
+          // Administrators are managed separately and are never removed here
+          continue;
+        }
+        com.aoindustries.aoserv.client.mysql.User mu = un.getMysqlUser();
+        if (mu != null) {
+          for (com.aoindustries.aoserv.client.mysql.UserServer msu : mu.getMysqlServerUsers()) {
+            plan.remove(LEVEL_SERVER_USERS, msu, msu.getMysqlServer().getLinuxServer(), RebuildNotifier.Type.MYSQL_USER);
+          }
+          plan.remove(LEVEL_USERS, mu, null, null);
+        }
+        com.aoindustries.aoserv.client.postgresql.User pu = un.getPostgresUser();
+        if (pu != null) {
+          for (com.aoindustries.aoserv.client.postgresql.UserServer psu : pu.getPostgresServerUsers()) {
+            Server linuxServer = psu.getPostgresServer().getLinuxServer();
+            // PostgreSQL databases are owned by their datdba
+            for (com.aoindustries.aoserv.client.postgresql.Database pd : psu.getPostgresDatabases()) {
+              plan.remove(LEVEL_DATABASES, pd, linuxServer, RebuildNotifier.Type.POSTGRES_USER);
+            }
+            plan.remove(LEVEL_SERVER_USERS, psu, linuxServer, RebuildNotifier.Type.POSTGRES_USER);
+          }
+          plan.remove(LEVEL_USERS, pu, null, null);
+        }
+        User la = un.getLinuxAccount();
+        if (la != null) {
+          for (UserServer lsa : la.getLinuxServerAccounts()) {
+            plan.remove(LEVEL_SERVER_USERS, lsa, lsa.getServer(), RebuildNotifier.Type.LINUX_ACCOUNT);
+          }
+          plan.remove(LEVEL_USERS, la, null, null);
+        }
+        plan.remove(LEVEL_USERNAMES, un, null, null);
+      }
+      // Groups after the users that belong to them
+      for (Group group : pk.getLinuxGroups()) {
+        for (GroupServer lsg : group.getLinuxServerGroups()) {
+          plan.remove(LEVEL_USERS, lsg, lsg.getServer(), RebuildNotifier.Type.LINUX_ACCOUNT);
+        }
+        plan.remove(LEVEL_USERNAMES, group, null, null);
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Removes everything owned by the given accounts.
+   *
+   * @param  conn       the <code>AoservConnector</code> to use
+   * @param  executor   the executor that performs the removals
+   * @param  accounts   the accounting codes of the accounts to tear down
+   * @param  ipPackage  the package that IP addresses are returned to, or <code>null</code> to leave them
+   *
+   * @return  the number of resources removed or the first failure for each account.  Once an account
+   *          fails, its remaining levels are skipped, since they depend on the failed removal.
+   */
+  public static Map<Account.Name, Outcome<Integer>> teardownAccounts(
+      AoservConnector conn,
+      Executor executor,
+      Collection<Account.Name> accounts,
+      Package ipPackage
+  ) throws IOException, SQLException, InterruptedException {
+    final long startNanos = System.nanoTime();
+
+    // Discover all resources concurrently
+    Map<Account.Name, Outcome<Plan>> discovered = FanOut.run(executor, accounts, name -> {
+      Account account = conn.getAccount().getAccount().get(name);
+      if (account == null) {
+        throw new SQLException("Unable to find Account: " + name);
+      }
+      return discover(account, ipPackage);
+    });
+    Map<Account.Name, Outcome<Integer>> outcomes = new LinkedHashMap<>(discovered.size() * 4 / 3 + 1);
+    List<Plan> plans = new ArrayList<>(discovered.size());
+    for (Map.Entry<Account.Name, Outcome<Plan>> entry : discovered.entrySet()) {
+      Outcome<Plan> outcome = entry.getValue();
+      if (outcome.isSuccess()) {
+        plans.add(outcome.getValue());
+      } else {
+        outcomes.put(entry.getKey(), Outcome.failure(outcome.getError(), outcome.getElapsedNanos()));
+      }
+    }
+
+    // Remove level by level, all accounts at once
+    for (int level = 0; level < NUM_LEVELS; level++) {
+      List<Action> actions = new ArrayList<>();
+      for (Plan plan : plans) {
+        if (plan.error == null) {
+          actions.addAll(plan.levels.get(level));
+        }
+      }
+      for (Map.Entry<Action, Outcome<Object>> entry : FanOut.run(executor, actions, action -> {
+        action.operation.perform();
+        return null;
+      }).entrySet()) {
+        Plan plan = entry.getKey().plan;
+        Outcome<Object> outcome = entry.getValue();
+        if (outcome.isSuccess()) {
+          plan.removed++;
+        } else if (plan.error == null) {
+          plan.error = outcome.getError();
+        }
+      }
+    }
+
+    // Wait once per server and rebuild type
+    Map<Server, Set<RebuildNotifier.Type>> rebuilds = new HashMap<>();
+    for (Plan plan : plans) {
+      for (Map.Entry<Server, Set<RebuildNotifier.Type>> entry : plan.rebuilds.entrySet()) {
+        rebuilds.computeIfAbsent(entry.getKey(), s -> new HashSet<>()).addAll(entry.getValue());
+      }
+    }
+    for (Map.Entry<Server, Outcome<Object>> entry : FanOut.run(executor, rebuilds.keySet(), server -> {
+      for (RebuildNotifier.Type type : rebuilds.get(server)) {
+        type.waitFor(server);
+      }
+      return null;
+    }).entrySet()) {
+      Outcome<Object> outcome = entry.getValue();
+      if (!outcome.isSuccess()) {
+        // Attribute the failure to every account with resources on the server
+        for (Plan plan : plans) {
+          if (plan.error == null && plan.rebuilds.containsKey(entry.getKey())) {
+            plan.error = outcome.getError();
+          }
+        }
+      }
+    }
+
+    long elapsedNanos = System.nanoTime() - startNanos;
+    for (Plan plan : plans) {
+      outcomes.put(
+          plan.account.getName(),
+          plan.error == null ? Outcome.success(plan.removed, elapsedNanos) : Outcome.failure(plan.error, elapsedNanos)
+      );
+    }
+    return outcomes;
+  }
+}
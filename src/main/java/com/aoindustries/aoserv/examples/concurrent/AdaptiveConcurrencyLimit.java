@@ -0,0 +1,120 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+/**
+ * A concurrency limit that adapts to observed latency.  While latency stays
+ * near the best observed, the limit grows; as latency rises, indicating that the
+ * master or daemons are queuing work, the limit shrinks in proportion.
+ *
+ * <p>Since latency is the only signal, operations of very different costs, such as
+ * simple adds and rebuild waits, should be measured by separate limits.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+  /**
+   * The weight given to each new sample in the smoothed latency.
+   */
+  private static final double SMOOTHING = 0.1;
+
+  /**
+   * The weight given to each newly calculated limit.
+   */
+  private static final double LIMIT_SMOOTHING = 0.2;
+
+  /**
+   * The number of samples after which the baseline latency is re-established,
+   * so it may track a changing environment.
+   */
+  private static final int BASELINE_RESET_SAMPLES = 1000;
+
+  /**
+   * The factor the limit is reduced by on failure.
+   */
+  private static final double FAILURE_BACKOFF = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+
+  private double limit;
+  private double smoothedNanos;
+  private long baselineNanos = Long.MAX_VALUE;
+  private int samples;
+
+  /**
+   * Creates a new adaptive limit.
+   *
+   * @param  initialLimit  the concurrency to start at
+   * @param  minLimit      the concurrency never backed off below
+   * @param  maxLimit      the concurrency never grown beyond
+   */
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+    if (minLimit < 1) {
+      throw new IllegalArgumentException("minLimit < 1: " + minLimit);
+    }
+    if (maxLimit < minLimit) {
+      throw new IllegalArgumentException("maxLimit < minLimit: " + maxLimit + " < " + minLimit);
+    }
+    if (initialLimit < minLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("initialLimit out of range: " + initialLimit);
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+  }
+
+  /**
+   * Gets the current concurrency limit.
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Records the result of one operation and adjusts the limit.
+   *
+   * @param  latencyNanos  the time taken by the operation
+   * @param  success       <code>false</code> when the operation failed
+   */
+  public synchronized void record(long latencyNanos, boolean success) {
+    if (!success) {
+      limit = Math.max(minLimit, limit * FAILURE_BACKOFF);
+      return;
+    }
+    smoothedNanos = smoothedNanos == 0 ? latencyNanos : smoothedNanos * (1 - SMOOTHING) + latencyNanos * SMOOTHING;
+    if (++samples >= BASELINE_RESET_SAMPLES) {
+      samples = 0;
+      baselineNanos = (long) smoothedNanos;
+    } else if (latencyNanos < baselineNanos) {
+      baselineNanos = latencyNanos;
+    }
+    // Ratio of best to current latency, 1.0 when not queuing
+    double gradient = smoothedNanos <= 0 ? 1.0 : Math.max(0.5, Math.min(1.0, baselineNanos / smoothedNanos));
+    // Allow a small queue to discover additional capacity
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING));
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules bulk operations fairly across their target servers.  Each target has
+ * its own queue, and queues are served round-robin so one busy server cannot
+ * starve the rest.  The number of operations in flight per target is capped, so
+ * no single daemon's rebuild queue backs up while others sit idle, and the total
+ * in flight follows an {@link AdaptiveConcurrencyLimit}.  An optional
+ * {@link TokenBucket} caps the overall request rate, leaving capacity on the
+ * master for interactive use.  A rate permit is only taken together with the
+ * slot of the operation it starts, so no permit or slot is held while waiting.
+ *
+ * <p>Only one thread dispatches at a time, in a loop, so operations completing
+ * on a direct executor do not recurse into the dispatcher.  Dispatching never
+ * waits on the rate: when no permit is available, another dispatch is scheduled
+ * for when one will be, and the current thread moves on.</p>
+ *
+ * <p>For example, to add many MySQL users spread over many servers:</p>
+ * <pre>FairScheduler&lt;DomainName&gt; scheduler = new FairScheduler&lt;&gt;(executor, new TokenBucket(20, 40),
+ *     new AdaptiveConcurrencyLimit(8, 2, 64), 2);
+ * for (...) {
+ *   futures.add(scheduler.submit(server, s -&gt; AddMysqlUser.addMysqlUser(conn, packageName, username, mysqlServer, s, database, password)));
+ * }</pre>
+ *
+ * <p>The fan-out helpers accept a scheduler in place of an executor, through
+ * {@link FanOut#run(com.aoindustries.aoserv.examples.concurrent.FairScheduler, java.lang.Iterable, com.aoindustries.aoserv.examples.concurrent.FanOut.Task)}.</p>
+ *
+ * @param  <K>  the type of target, typically the server hostname
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class FairScheduler<K> {
+
+  private final class Job<V> {
+
+    private final K target;
+    private final FanOut.Task<? super K, ? extends V> task;
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+
+    private Job(K target, FanOut.Task<? super K, ? extends V> task) {
+      this.target = target;
+      this.task = task;
+    }
+
+    @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+    private void run() {
+      boolean success = false;
+      long startNanos = System.nanoTime();
+      try {
+        V value = task.call(target);
+        success = true;
+        future.complete(value);
+      } catch (ThreadDeath td) {
+        future.completeExceptionally(td);
+        throw td;
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      } finally {
+        limit.record(System.nanoTime() - startNanos, success);
+        release(target);
+        dispatch();
+      }
+    }
+  }
+
+  private final Executor executor;
+  private final TokenBucket rateLimiter;
+  private final AdaptiveConcurrencyLimit limit;
+  private final int maxPerTarget;
+
+  private final Map<K, Queue<Job<?>>> queues = new HashMap<>();
+  private final Map<K, Integer> inFlightByTarget = new HashMap<>();
+
+  /**
+   * The targets with queued jobs, in round-robin order.
+   */
+  private final Queue<K> rotation = new ArrayDeque<>();
+  private int inFlight;
+
+  /**
+   * Set while a thread is in the dispatch loop.
+   */
+  private boolean dispatching;
+
+  /**
+   * Set while a dispatch is scheduled for when the next rate permit is available.
+   */
+  private boolean retryScheduled;
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param  executor      the executor that runs the operations
+   * @param  rateLimiter   the optional limit on the overall request rate
+   * @param  limit         the limit on the total number of operations in flight
+   * @param  maxPerTarget  the maximum number of operations in flight for any one target
+   */
+  public FairScheduler(Executor executor, TokenBucket rateLimiter, AdaptiveConcurrencyLimit limit, int maxPerTarget) {
+    if (maxPerTarget < 1) {
+      throw new IllegalArgumentException("maxPerTarget < 1: " + maxPerTarget);
+    }
+    this.executor = Objects.requireNonNull(executor);
+    this.rateLimiter = rateLimiter;
+    this.limit = Objects.requireNonNull(limit);
+    this.maxPerTarget = maxPerTarget;
+  }
+
+  /**
+   * Queues an operation for the given target.  The calling thread never waits
+   * on the rate limit.
+   *
+   * @return  the future that completes once the operation has been performed
+   */
+  public <V> CompletableFuture<V> submit(K target, FanOut.Task<? super K, ? extends V> task) {
+    Job<V> job = new Job<>(target, task);
+    synchronized (this) {
+      Queue<Job<?>> queue = queues.get(target);
+      if (queue == null) {
+        queue = new ArrayDeque<>();
+        queues.put(target, queue);
+        rotation.add(target);
+      }
+      queue.add(job);
+    }
+    dispatch();
+    return job.future;
+  }
+
+  /**
+   * Gets the number of operations currently in flight.
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  private synchronized void release(K target) {
+    inFlight--;
+    int count = inFlightByTarget.get(target) - 1;
+    if (count == 0) {
+      inFlightByTarget.remove(target);
+    } else {
+      inFlightByTarget.put(target, count);
+    }
+  }
+
+  /**
+   * Moves the first target that may start another job to the head of the rotation.
+   * Must hold lock.
+   *
+   * @return  the target or <code>null</code> when no job may start
+   */
+  private K readyTarget() {
+    assert Thread.holdsLock(this);
+    if (inFlight >= limit.getLimit()) {
+      return null;
+    }
+    for (int i = 0, size = rotation.size(); i < size; i++) {
+      K target = rotation.element();
+      if (inFlightByTarget.getOrDefault(target, 0) < maxPerTarget) {
+        return target;
+      }
+      // Target busy, try the next one
+      rotation.add(rotation.remove());
+    }
+    return null;
+  }
+
+  /**
+   * Takes the next job of the target at the head of the rotation, counting it as in flight.
+   * Must hold lock.
+   */
+  private Job<?> start(K target) {
+    assert Thread.holdsLock(this);
+    rotation.remove();
+    Queue<Job<?>> queue = queues.get(target);
+    Job<?> job = queue.remove();
+    if (queue.isEmpty()) {
+      queues.remove(target);
+    } else {
+      rotation.add(target);
+    }
+    inFlight++;
+    inFlightByTarget.merge(target, 1, Integer::sum);
+    return job;
+  }
+
+  /**
+   * Starts as many queued jobs as allowed, visiting targets in round-robin order.
+   * When another thread is already dispatching, it will see any new work before
+   * it stops, so this returns immediately.
+   *
+   * <p>A rate permit is only taken once a job is ready to use it.  When none is
+   * available, a single dispatch is scheduled for when one will be, so no worker
+   * thread ever sleeps on the rate and no queued job is left waiting for an
+   * operation to complete.</p>
+   */
+  private void dispatch() {
+    synchronized (this) {
+      if (dispatching) {
+        return;
+      }
+      dispatching = true;
+    }
+    long retryNanos = -1;
+    boolean stopped = false;
+    try {
+      while (true) {
+        Job<?> job;
+        synchronized (this) {
+          K target = readyTarget();
+          if (target != null && rateLimiter != null && !rateLimiter.tryAcquire()) {
+            // Come back when the next permit is available
+            if (!retryScheduled) {
+              retryScheduled = true;
+              retryNanos = rateLimiter.getWaitNanos();
+            }
+            target = null;
+          }
+          if (target == null) {
+            dispatching = false;
+            stopped = true;
+            break;
+          }
+          job = start(target);
+        }
+        try {
+          executor.execute(job::run);
+        } catch (RejectedExecutionException e) {
+          job.future.completeExceptionally(e);
+          release(job.target);
+        }
+      }
+    } finally {
+      if (!stopped) {
+        synchronized (this) {
+          dispatching = false;
+        }
+      }
+    }
+    if (retryNanos != -1) {
+      CompletableFuture.delayedExecutor(retryNanos, TimeUnit.NANOSECONDS).execute(() -> {
+        synchronized (this) {
+          retryScheduled = false;
+        }
+        dispatch();
+      });
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import com.aoindustries.aoserv.examples.trace.Span;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Runs the same operation against a set of targets concurrently, such as
+ * granting one user access to many servers.  Each target is processed
+ * independently, so the total time is about that of the slowest target
+ * instead of the sum of all of them.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class FanOut {
+
+  /** Make no instances. */
+  private FanOut() {
+    throw new AssertionError();
+  }
+
+  /**
+   * An operation performed once per target.
+   *
+   * @param  <T>  the type of target
+   * @param  <V>  the type of value produced
+   */
+  @FunctionalInterface
+  public interface Task<T, V> {
+    /**
+     * Performs the operation for one target.
+     */
+    V call(T target) throws IOException, SQLException;
+  }
+
+  /**
+   * Runs the task once for each target, waiting for all to complete.
+   * The failure of one target does not stop the others.
+   *
+   * @param  executor  the executor that runs the per-target tasks
+   * @param  targets   the targets, each processed once
+   * @param  task      the operation to perform
+   *
+   * @return  the outcome for each target, in the iteration order of <code>targets</code>
+   *
+   * @throws  InterruptedException  when interrupted while waiting, any tasks not yet started are cancelled
+   */
+  public static <T, V> Map<T, Outcome<V>> run(
+      Executor executor,
+      Iterable<? extends T> targets,
+      Task<? super T, ? extends V> task
+  ) throws InterruptedException {
+    // Continue the caller's trace in the worker threads
+    Span parent = Span.current();
+    List<T> order = new ArrayList<>();
+    List<CompletableFuture<Outcome<V>>> futures = new ArrayList<>();
+    for (T target : targets) {
+      order.add(target);
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        try (Span.Scope scope = parent.makeCurrent()) {
+          return call(task, target);
+        }
+      }, executor));
+    }
+    return collect(order, futures);
+  }
+
+  /**
+   * Runs the task once for each target through a scheduler, waiting for all to complete.
+   * The scheduler serves targets fairly, capping the operations in flight per target
+   * and overall, and optionally the request rate.
+   * The failure of one target does not stop the others.
+   *
+   * @param  scheduler  the scheduler that runs the per-target tasks
+   * @param  targets    the targets, each processed once
+   * @param  task       the operation to perform
+   *
+   * @return  the outcome for each target, in the iteration order of <code>targets</code>
+   *
+   * @throws  InterruptedException  when interrupted while waiting, any tasks not yet started are cancelled
+   */
+  public static <T, V> Map<T, Outcome<V>> run(
+      FairScheduler<? super T> scheduler,
+      Iterable<? extends T> targets,
+      Task<? super T, ? extends V> task
+  ) throws InterruptedException {
+    return run(scheduler, targets, target -> target, task);
+  }
+
+  /**
+   * Runs the task once for each target through a scheduler, waiting for all to complete.
+   * The scheduler serves the keys fairly, such as the servers of many accounts, capping
+   * the operations in flight per key and overall, and optionally the request rate.
+   * The failure of one target does not stop the others.
+   *
+   * @param  scheduler  the scheduler that runs the per-target tasks
+   * @param  targets    the targets, each processed once
+   * @param  keyOf      gets the key the scheduler serves each target under
+   * @param  task       the operation to perform
+   *
+   * @return  the outcome for each target, in the iteration order of <code>targets</code>
+   *
+   * @throws  InterruptedException  when interrupted while waiting, any tasks not yet started are cancelled
+   */
+  public static <T, K, V> Map<T, Outcome<V>> run(
+      FairScheduler<K> scheduler,
+      Iterable<? extends T> targets,
+      Function<? super T, ? extends K> keyOf,
+      Task<? super T, ? extends V> task
+  ) throws InterruptedException {
+    // Continue the caller's trace in the worker threads
+    Span parent = Span.current();
+    List<T> order = new ArrayList<>();
+    List<CompletableFuture<Outcome<V>>> futures = new ArrayList<>();
+    for (T target : targets) {
+      order.add(target);
+      futures.add(scheduler.submit(keyOf.apply(target), k -> {
+        try (Span.Scope scope = parent.makeCurrent()) {
+          return call(task, target);
+        }
+      }));
+    }
+    return collect(order, futures);
+  }
+
+  private static <T, V> Map<T, Outcome<V>> collect(
+      List<T> order,
+      List<CompletableFuture<Outcome<V>>> futures
+  ) throws InterruptedException {
+    Map<T, Outcome<V>> outcomes = new LinkedHashMap<>(order.size() * 4 / 3 + 1);
+    try {
+      for (int i = 0, size = order.size(); i < size; i++) {
+        Outcome<V> outcome;
+        try {
+          outcome = futures.get(i).get();
+        } catch (ExecutionException e) {
+          // Only reached for errors not captured by call
+          outcome = Outcome.failure(e.getCause(), 0);
+        }
+        outcomes.put(order.get(i), outcome);
+      }
+    } catch (InterruptedException e) {
+      for (CompletableFuture<Outcome<V>> future : futures) {
+        future.cancel(false);
+      }
+      throw e;
+    }
+    return outcomes;
+  }
+
+  /**
+   * Calls the task in the current thread, capturing its result or failure into an {@link Outcome}.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public static <T, V> Outcome<V> call(Task<? super T, ? extends V> task, T target) {
+    long startNanos = System.nanoTime();
+    try {
+      V value = task.call(target);
+      return Outcome.success(value, System.nanoTime() - startNanos);
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      return Outcome.failure(t, System.nanoTime() - startNanos);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Issues a second, duplicate request for a read-only operation when the first
+ * is slower than usual, taking whichever completes first.  This bounds the tail
+ * latency of lookups that occasionally stall, at the cost of a small number of
+ * extra requests.
+ *
+ * <p>The hedging delay is a percentile of recently observed latencies, so only
+ * the slowest few percent of requests are duplicated.  Only operations without
+ * side effects may be hedged.</p>
+ *
+ * <p>The percentile is recomputed from a sorted copy of the window once every
+ * eighth of the window has been replaced, not on every request, so reading the
+ * delay is constant-time and the sorting is amortized over the requests.</p>
+ *
+ * <p>The examples hedge their read-only resolutions, such as of a
+ * <code>Package</code> or <code>Server</code>, through {@link #LOOKUPS}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Hedge {
+
+  /**
+   * The hedge used by the examples for their read-only lookups: a second request
+   * after the slowest five percent of the last 256 lookups, and never sooner than
+   * 100 milliseconds.  The requests are performed by daemon threads created as
+   * needed.
+   */
+  public static final Hedge LOOKUPS = new Hedge(
+      Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, Hedge.class.getSimpleName() + " lookup");
+        thread.setDaemon(true);
+        return thread;
+      }),
+      0.95,
+      256,
+      TimeUnit.MILLISECONDS.toNanos(100)
+  );
+
+  private final Executor executor;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final long[] window;
+  private final int refreshInterval;
+  private int windowCount;
+  private int windowNext;
+  private int sinceRefresh;
+  private volatile long delayNanos;
+
+  /**
+   * Creates a new hedge.
+   *
+   * @param  executor       the executor that performs the requests
+   * @param  percentile     the latency percentile after which to hedge, such as <code>0.95</code>
+   * @param  windowSize     the number of recent latencies tracked
+   * @param  minDelayNanos  the minimum hedging delay, also used until the window has filled
+   */
+  public Hedge(Executor executor, double percentile, int windowSize, long minDelayNanos) {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException("percentile out of range (0, 1): " + percentile);
+    }
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("windowSize < 1: " + windowSize);
+    }
+    this.executor = executor;
+    this.percentile = percentile;
+    this.minDelayNanos = minDelayNanos;
+    this.window = new long[windowSize];
+    this.refreshInterval = Math.max(1, windowSize / 8);
+    this.delayNanos = minDelayNanos;
+  }
+
+  private synchronized void record(long nanos) {
+    window[windowNext] = nanos;
+    windowNext = (windowNext + 1) % window.length;
+    if (windowCount < window.length) {
+      windowCount++;
+    }
+    if (windowCount == window.length && ++sinceRefresh >= refreshInterval) {
+      // Recompute the percentile
+      sinceRefresh = 0;
+      long[] sorted = window.clone();
+      Arrays.sort(sorted);
+      delayNanos = Math.max(minDelayNanos, sorted[Math.min(windowCount - 1, (int) (windowCount * percentile))]);
+    }
+  }
+
+  /**
+   * Gets the current hedging delay, which is the minimum delay until the window
+   * has filled.
+   */
+  public long getDelayNanos() {
+    return delayNanos;
+  }
+
+  private <V> CompletableFuture<V> submit(Retry.Call<? extends V> call) {
+    return CompletableFuture.supplyAsync(() -> {
+      long startNanos = System.nanoTime();
+      try {
+        V value = call.call();
+        record(System.nanoTime() - startNanos);
+        return value;
+      } catch (IOException | SQLException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  private static <V> V unwrap(ExecutionException e) throws IOException, SQLException {
+    Throwable cause = e.getCause();
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return Outcome.<V>failure(cause, 0).get();
+  }
+
+  /**
+   * Performs a read-only operation, duplicating the request when the first has not
+   * completed within the hedging delay.
+   *
+   * @return  the value of the first request to succeed
+   *
+   * @throws  IOException   when all requests fail, the error of the first request
+   * @throws  SQLException  when all requests fail, the error of the first request
+   */
+  public <V> V call(Retry.Call<? extends V> call) throws IOException, SQLException, InterruptedException {
+    CompletableFuture<V> primary = submit(call);
+    try {
+      return primary.get(getDelayNanos(), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      // Failed fast, not slow: nothing to hedge
+      return unwrap(e);
+    } catch (TimeoutException e) {
+      // Hedge below
+    }
+    CompletableFuture<V> hedged = submit(call);
+    try {
+      CompletableFuture.anyOf(primary, hedged).get();
+    } catch (ExecutionException e) {
+      // One failed, wait for the other below
+    }
+    CompletableFuture<V> first = primary.isDone() && !primary.isCompletedExceptionally() ? primary : hedged;
+    try {
+      V value = first.get();
+      (first == primary ? hedged : primary).cancel(false);
+      return value;
+    } catch (ExecutionException e) {
+      // Both failed
+      try {
+        return primary.get();
+      } catch (ExecutionException e2) {
+        return unwrap(e2);
+      }
+    }
+  }
+
+  /**
+   * Performs a read-only operation with retries, hedging each attempt.  An interrupt
+   * while waiting is reported as an <code>InterruptedIOException</code>, with the
+   * interrupted status restored, so hedged lookups may be used wherever
+   * {@link Retry#idempotent(com.aoindustries.aoserv.examples.concurrent.Retry.Call)} is.
+   *
+   * @param  retry  the retry policy for failed attempts
+   */
+  public <V> V idempotent(Retry retry, Retry.Call<? extends V> call) throws IOException, SQLException {
+    return retry.idempotent(() -> {
+      try {
+        return call(call);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException ioErr = new InterruptedIOException();
+        ioErr.initCause(e);
+        throw ioErr;
+      }
+    });
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * The result of one operation within a larger batch.  Either the operation
+ * succeeded with a value, or it failed with an error.  Failures of one element
+ * do not prevent the others from completing.
+ *
+ * @param  <V>  the type of value produced on success
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Outcome<V> {
+
+  /**
+   * Creates a successful outcome.
+   */
+  public static <V> Outcome<V> success(V value, long elapsedNanos) {
+    return new Outcome<>(value, null, elapsedNanos);
+  }
+
+  /**
+   * Creates a failed outcome.
+   */
+  public static <V> Outcome<V> failure(Throwable error, long elapsedNanos) {
+    if (error == null) {
+      throw new IllegalArgumentException("error == null");
+    }
+    return new Outcome<>(null, error, elapsedNanos);
+  }
+
+  private final V value;
+  private final Throwable error;
+  private final long elapsedNanos;
+
+  private Outcome(V value, Throwable error, long elapsedNanos) {
+    this.value = value;
+    this.error = error;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return (error == null ? "success: " + value : "failure: " + error)
+        + " in " + (elapsedNanos / 1000000) + " ms";
+  }
+
+  /**
+   * Checks if the operation succeeded.
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Gets the value produced by a successful operation.
+   *
+   * @return  the value or <code>null</code> when failed
+   */
+  public V getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the error for a failed operation.
+   *
+   * @return  the error or <code>null</code> when succeeded
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * Gets the wall-clock time spent performing the operation.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Gets the value, rethrowing the original error on failure.
+   */
+  public V get() throws IOException, SQLException {
+    if (error == null) {
+      return value;
+    }
+    if (error instanceof IOException) {
+      throw (IOException) error;
+    }
+    if (error instanceof SQLException) {
+      throw (SQLException) error;
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    if (error instanceof Error) {
+      throw (Error) error;
+    }
+    throw new IOException(error);
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import com.aoindustries.aoserv.client.SimpleAoservClient;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.examples.jfr.RebuildWaitEvent;
+import com.aoindustries.aoserv.examples.trace.Span;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exposes the completion of daemon rebuilds as futures.
+ *
+ * <p>The daemons only provide blocking <code>waitFor*Rebuild</code> calls.  Instead of
+ * each caller parking its own thread, all requests for the same server and
+ * rebuild type are coalesced onto a single in-flight wait.  A request made while
+ * a wait is already in progress is satisfied by the next wait, since the
+ * in-progress wait may have started before the caller's changes were made.
+ * The number of blocked threads is therefore bounded by the number of distinct
+ * servers being rebuilt, not by the number of operations waiting on them.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class RebuildNotifier {
+
+  /**
+   * The types of rebuilds that may be waited for.
+   */
+  public enum Type {
+    LINUX_ACCOUNT {
+      @Override
+      void doWaitFor(Server linuxServer) throws IOException, SQLException {
+        linuxServer.waitForLinuxAccountRebuild();
+      }
+
+      @Override
+      void doWaitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException {
+        aoClient.waitForLinuxAccountRebuild(server);
+      }
+    },
+    MYSQL_USER {
+      @Override
+      void doWaitFor(Server linuxServer) throws IOException, SQLException {
+        linuxServer.waitForMysqlUserRebuild();
+      }
+
+      @Override
+      void doWaitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException {
+        aoClient.waitForMysqlUserRebuild(server);
+      }
+    },
+    POSTGRES_USER {
+      @Override
+      void doWaitFor(Server linuxServer) throws IOException, SQLException {
+        linuxServer.waitForPostgresUserRebuild();
+      }
+
+      @Override
+      void doWaitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException {
+        aoClient.waitForPostgresUserRebuild(server);
+      }
+    },
+    HTTPD_SITE {
+      @Override
+      void doWaitFor(Server linuxServer) throws IOException, SQLException {
+        linuxServer.waitForHttpdSiteRebuild();
+      }
+
+      @Override
+      void doWaitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException {
+        aoClient.waitForHttpdSiteRebuild(server);
+      }
+    };
+
+    /**
+     * Blocks until a rebuild of this type has completed on the server.
+     */
+    abstract void doWaitFor(Server linuxServer) throws IOException, SQLException;
+
+    /**
+     * Blocks until a rebuild of this type has completed on the server.
+     */
+    abstract void doWaitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException;
+
+    /**
+     * Blocks until a rebuild of this type has completed on the server,
+     * recording the wait as a {@link RebuildWaitEvent} and as a {@link Span}.
+     */
+    public void waitFor(Server linuxServer) throws IOException, SQLException {
+      RebuildWaitEvent event = new RebuildWaitEvent();
+      event.begin();
+      try (Span span = Span.start("waitFor." + name())) {
+        span.tag("server", linuxServer);
+        try {
+          doWaitFor(linuxServer);
+        } catch (IOException | SQLException | RuntimeException e) {
+          span.error(e);
+          throw e;
+        }
+      } finally {
+        event.end(linuxServer, this);
+      }
+    }
+
+    /**
+     * Blocks until a rebuild of this type has completed on the server, through a
+     * <code>SimpleAoservClient</code>, recording the wait the same as
+     * {@link #waitFor(com.aoindustries.aoserv.client.linux.Server)}.
+     *
+     * @param  server  the hostname of the server
+     */
+    public void waitFor(SimpleAoservClient aoClient, String server) throws IOException, SQLException {
+      RebuildWaitEvent event = new RebuildWaitEvent();
+      event.begin();
+      try (Span span = Span.start("waitFor." + name())) {
+        span.tag("server", server);
+        try {
+          doWaitFor(aoClient, server);
+        } catch (IOException | SQLException | RuntimeException e) {
+          span.error(e);
+          throw e;
+        }
+      } finally {
+        event.end(server, this);
+      }
+    }
+  }
+
+  /**
+   * A follow-up step performed once a rebuild has completed.
+   *
+   * @param  <V>  the type of value produced
+   */
+  @FunctionalInterface
+  public interface Step<V> {
+    /**
+     * Performs the step.
+     */
+    V call() throws IOException, SQLException;
+  }
+
+  private static final class Key {
+
+    private final Server linuxServer;
+    private final Type type;
+
+    private Key(Server linuxServer, Type type) {
+      this.linuxServer = linuxServer;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return type == other.type && linuxServer.equals(other.linuxServer);
+    }
+
+    @Override
+    public int hashCode() {
+      return linuxServer.hashCode() * 31 + type.ordinal();
+    }
+  }
+
+  /**
+   * The coalescing state for one server and rebuild type.
+   */
+  private final class Watch {
+
+    private final Key key;
+
+    /**
+     * The future for requests that arrived while a wait is in progress.
+     */
+    private CompletableFuture<Void> next;
+    private boolean running;
+
+    private Watch(Key key) {
+      this.key = key;
+    }
+
+    private synchronized CompletableFuture<Void> request() {
+      CompletableFuture<Void> future = next;
+      if (future == null) {
+        future = next = new CompletableFuture<>();
+      }
+      if (!running) {
+        start();
+      }
+      return future;
+    }
+
+    /**
+     * Starts a wait for all pending requests.  Must hold lock.
+     */
+    private void start() {
+      assert Thread.holdsLock(this);
+      final CompletableFuture<Void> current = next;
+      next = null;
+      running = true;
+      try {
+        watcher.execute(() -> {
+          try {
+            key.type.waitFor(key.linuxServer);
+            current.complete(null);
+          } catch (ThreadDeath td) {
+            current.completeExceptionally(td);
+            throw td;
+          } catch (Throwable t) {
+            current.completeExceptionally(t);
+          } finally {
+            synchronized (this) {
+              running = false;
+              if (next != null) {
+                start();
+              }
+            }
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        running = false;
+        current.completeExceptionally(e);
+      }
+    }
+  }
+
+  private final Executor watcher;
+  private final Executor executor;
+  private final ConcurrentMap<Key, Watch> watches = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new rebuild notifier.
+   *
+   * @param  watcher   the executor that performs the blocking waits, at most one per server and rebuild type
+   * @param  executor  the executor that runs follow-up steps
+   */
+  public RebuildNotifier(Executor watcher, Executor executor) {
+    this.watcher = Objects.requireNonNull(watcher);
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * Gets a future that completes once a rebuild of the given type, started
+   * after this call, has completed on the server.
+   */
+  public CompletableFuture<Void> rebuild(Server linuxServer, Type type) {
+    Key key = new Key(linuxServer, type);
+    return watches.computeIfAbsent(key, Watch::new).request();
+  }
+
+  /**
+   * Performs a follow-up step once a rebuild has completed, such as setting a
+   * password.  The step is run on this notifier's executor, never on the watcher.
+   */
+  public <V> CompletableFuture<V> afterRebuild(Server linuxServer, Type type, Step<? extends V> step) {
+    return rebuild(linuxServer, type).thenApplyAsync(
+        v -> {
+          try {
+            return step.call();
+          } catch (IOException | SQLException e) {
+            throw new CompletionException(e);
+          }
+        },
+        executor
+    );
+  }
+}
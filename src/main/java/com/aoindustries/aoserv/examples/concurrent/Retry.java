@@ -0,0 +1,168 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries operations that fail from transient communication errors, waiting a
+ * random, exponentially increasing delay between attempts.
+ *
+ * <p>Only an <code>IOException</code> is considered transient.  An
+ * <code>SQLException</code> is reported by the master for the request itself,
+ * such as a missing or duplicate row, so retrying would fail the same way.</p>
+ *
+ * <p>Lookups and rebuild waits may be repeated freely.  An add, however, may
+ * have succeeded on the master even though its response was lost, so it is only
+ * retried after confirming the object does not already exist.</p>
+ *
+ * <p>An interrupt while waiting between attempts is reported as an
+ * <code>InterruptedIOException</code>, with the interrupted status restored, so
+ * that retries may be used within tasks that may only throw
+ * <code>IOException</code> and <code>SQLException</code>.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Retry {
+
+  /**
+   * An operation that may be attempted more than once.
+   *
+   * @param  <V>  the type of value produced
+   */
+  @FunctionalInterface
+  public interface Call<V> {
+    /**
+     * Performs one attempt.
+     */
+    V call() throws IOException, SQLException;
+  }
+
+  /**
+   * The policy used by the examples: four attempts, waiting up to a quarter
+   * second after the first failure and never more than ten seconds.
+   */
+  public static final Retry DEFAULT = new Retry(4, 250, 10000);
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  /**
+   * Creates a new retry policy.
+   *
+   * @param  maxAttempts      the total number of attempts, including the first
+   * @param  baseDelayMillis  the upper bound of the delay after the first failure, doubled for each later failure
+   * @param  maxDelayMillis   the upper bound of any one delay
+   */
+  public Retry(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+    }
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * Sleeps before the next attempt.  Full jitter is used, choosing uniformly between zero
+   * and the exponential bound, so that many clients failing together do not retry together.
+   *
+   * @param  failures  the number of failed attempts so far
+   *
+   * @throws  InterruptedIOException  when interrupted while sleeping
+   */
+  private void backoff(int failures) throws InterruptedIOException {
+    long bound = baseDelayMillis << Math.min(failures - 1, 30);
+    if (bound <= 0 || bound > maxDelayMillis) {
+      bound = maxDelayMillis;
+    }
+    if (bound > 0) {
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException ioErr = new InterruptedIOException();
+        ioErr.initCause(e);
+        throw ioErr;
+      }
+    }
+  }
+
+  /**
+   * Performs an operation that may be safely repeated, such as a lookup or a rebuild wait.
+   *
+   * @throws  IOException  the last communication error once all attempts have failed
+   */
+  public <V> V idempotent(Call<? extends V> call) throws IOException, SQLException {
+    for (int failures = 0; ; ) {
+      try {
+        return call.call();
+      } catch (IOException e) {
+        if (++failures >= maxAttempts) {
+          throw e;
+        }
+        backoff(failures);
+      }
+    }
+  }
+
+  /**
+   * Performs an add that must not be repeated once it has succeeded.  After a
+   * communication error, the object is looked up before trying again, and the
+   * existing object is returned when the earlier attempt did succeed.  A later
+   * attempt rejected by the master, such as for a duplicate name, is also
+   * resolved by the lookup when possible.
+   *
+   * @param  add   creates the object and returns it
+   * @param  find  finds the object created by <code>add</code>, or returns <code>null</code> when it does not exist
+   */
+  public <V> V add(Call<? extends V> add, Call<? extends V> find) throws IOException, SQLException {
+    for (int failures = 0; ; ) {
+      try {
+        return add.call();
+      } catch (IOException e) {
+        if (++failures >= maxAttempts) {
+          throw e;
+        }
+        backoff(failures);
+        V existing = idempotent(find);
+        if (existing != null) {
+          return existing;
+        }
+      } catch (SQLException e) {
+        if (failures > 0) {
+          V existing = idempotent(find);
+          if (existing != null) {
+            return existing;
+          }
+        }
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the client tables a workflow needs concurrently, before the workflow
+ * uses them.
+ *
+ * <p>Each table is otherwise loaded on demand, the first time it is accessed,
+ * one after another on the critical path of the workflow.  When a workflow
+ * declares its tables up front, they are all requested at once, and a later
+ * access to a table still loading waits for that load instead of starting
+ * another.</p>
+ *
+ * <p>Warm-up is only an optimization: a table that fails to load is logged and
+ * will be loaded again on demand.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TableWarmup {
+
+  private static final Logger logger = Logger.getLogger(TableWarmup.class.getName());
+
+  /** Make no instances. */
+  private TableWarmup() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The tables that may be warmed.
+   */
+  public enum Table {
+    ACCOUNT {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getAccount().getAccount().getRows();
+      }
+    },
+    USERNAME {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getAccount().getUser().getRows();
+      }
+    },
+    PACKAGE {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getBilling().getPackage().getRows();
+      }
+    },
+    PACKAGE_CATEGORY {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getBilling().getPackageCategory().getRows();
+      }
+    },
+    PACKAGE_DEFINITION {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getBilling().getPackageDefinition().getRows();
+      }
+    },
+    OPERATING_SYSTEM_VERSION {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getDistribution().getOperatingSystemVersion().getRows();
+      }
+    },
+    HOST {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getNet().getHost().getRows();
+      }
+    },
+    IP_ADDRESS {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getNet().getIpAddress().getRows();
+      }
+    },
+    LINUX_SERVER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getLinux().getServer().getRows();
+      }
+    },
+    LINUX_GROUP {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getLinux().getGroup().getRows();
+      }
+    },
+    LINUX_USER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getLinux().getUser().getRows();
+      }
+    },
+    LINUX_USER_SERVER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getLinux().getUserServer().getRows();
+      }
+    },
+    EMAIL_DOMAIN {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getEmail().getDomain().getRows();
+      }
+    },
+    MYSQL_SERVER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getMysql().getServer().getRows();
+      }
+    },
+    MYSQL_DATABASE {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getMysql().getDatabase().getRows();
+      }
+    },
+    MYSQL_USER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getMysql().getUser().getRows();
+      }
+    },
+    POSTGRES_SERVER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getPostgresql().getServer().getRows();
+      }
+    },
+    POSTGRES_USER {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getPostgresql().getUser().getRows();
+      }
+    },
+    HTTPD_SITE {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getWeb().getSite().getRows();
+      }
+    },
+    HTTPD_TOMCAT_SITE {
+      @Override
+      public void load(AoservConnector conn) throws IOException, SQLException {
+        conn.getWeb_tomcat().getSite().getRows();
+      }
+    };
+
+    /**
+     * Loads the table into the client cache.
+     */
+    public abstract void load(AoservConnector conn) throws IOException, SQLException;
+  }
+
+  /**
+   * The default executor, with daemon threads that do not prevent exit.
+   */
+  private static final ExecutorService defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, TableWarmup.class.getSimpleName());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Starts loading the tables concurrently, without waiting.
+   *
+   * @param  conn      the <code>AoservConnector</code> to warm
+   * @param  executor  the executor that loads the tables
+   * @param  tables    the tables the workflow is about to use
+   *
+   * @return  a future completing once all tables have been loaded or have failed
+   */
+  public static CompletableFuture<Void> warmup(AoservConnector conn, Executor executor, Collection<Table> tables) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>(tables.size());
+    for (Table table : tables) {
+      futures.add(CompletableFuture.runAsync(() -> {
+        try {
+          table.load(conn);
+        } catch (IOException | SQLException e) {
+          throw new CompletionException(e);
+        }
+      }, executor).exceptionally(t -> {
+        logger.log(Level.WARNING, "Unable to warm table: " + table, t);
+        return null;
+      }));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+  }
+
+  /**
+   * Starts loading the tables concurrently on a shared pool of daemon threads, without waiting.
+   *
+   * @see  #warmup(com.aoindustries.aoserv.client.AoservConnector, java.util.concurrent.Executor, java.util.Collection)
+   */
+  public static CompletableFuture<Void> warmup(AoservConnector conn, Collection<Table> tables) {
+    return warmup(conn, defaultExecutor, tables);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests sent to the master.  Permits accumulate at a fixed
+ * rate up to a burst size; callers take one permit per request, waiting when
+ * none are available.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TokenBucket {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double permitsPerNano;
+  private final double burst;
+
+  /**
+   * The number of available permits, negative when permits have been reserved ahead.
+   */
+  private double permits;
+  private long lastRefillNanos;
+
+  /**
+   * Creates a new token bucket, initially full.
+   *
+   * @param  permitsPerSecond  the sustained number of requests allowed per second
+   * @param  burst             the number of requests that may be made at once after being idle
+   */
+  public TokenBucket(double permitsPerSecond, int burst) {
+    if (!(permitsPerSecond > 0)) {
+      throw new IllegalArgumentException("permitsPerSecond <= 0: " + permitsPerSecond);
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("burst < 1: " + burst);
+    }
+    this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+    this.burst = burst;
+    this.permits = burst;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  private void refill(long now) {
+    assert Thread.holdsLock(this);
+    permits = Math.min(burst, permits + (now - lastRefillNanos) * permitsPerNano);
+    lastRefillNanos = now;
+  }
+
+  /**
+   * Takes one permit, waiting as long as needed for it to become available.
+   */
+  public void acquire() throws InterruptedException {
+    long waitNanos;
+    synchronized (this) {
+      refill(System.nanoTime());
+      permits--;
+      waitNanos = permits >= 0 ? 0 : (long) Math.ceil(-permits / permitsPerNano);
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Takes one permit only when immediately available.
+   *
+   * @return  <code>true</code> when a permit was taken
+   */
+  public synchronized boolean tryAcquire() {
+    refill(System.nanoTime());
+    if (permits >= 1) {
+      permits--;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Gets how long until a permit will be available, without taking one.
+   *
+   * @return  the number of nanoseconds to wait or <code>0</code> when a permit is available now
+   */
+  public synchronized long getWaitNanos() {
+    refill(System.nanoTime());
+    return permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+  }
+}
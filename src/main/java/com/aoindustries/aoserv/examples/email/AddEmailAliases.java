@@ -0,0 +1,262 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.email;
+
+import com.aoapps.net.DomainName;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.email.Address;
+import com.aoindustries.aoserv.client.email.Domain;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Attaches additional email addresses to existing email inboxes, such as when
+ * migrating the aliases of many users at once.
+ *
+ * <p>The desired addresses are compared against the existing <code>Address</code>
+ * rows of each domain, only the missing addresses are created, and only the
+ * addresses not already delivered to each inbox are attached.  Since the inboxes
+ * already exist, no rebuild wait is required before they can receive email.</p>
+ *
+ * @see  AddEmailInbox
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AddEmailAliases {
+
+  /** Make no instances. */
+  private AddEmailAliases() {
+    throw new AssertionError();
+  }
+
+  /**
+   * One email address to be delivered to an existing inbox.
+   */
+  public static final class Alias {
+
+    private final UserServer inbox;
+    private final String address;
+    private final DomainName domain;
+
+    /**
+     * Specifies one email alias.
+     *
+     * @param  inbox    the existing inbox that will receive the email
+     * @param  address  the part of the email address before the <code>@</code>
+     * @param  domain   the domain of the email address, which must exist on the server of the inbox
+     */
+    public Alias(UserServer inbox, String address, DomainName domain) {
+      this.inbox = inbox;
+      this.address = address;
+      this.domain = domain;
+    }
+
+    @Override
+    public String toString() {
+      return address + '@' + domain + " -> " + inbox;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Alias)) {
+        return false;
+      }
+      Alias other = (Alias) obj;
+      return
+          inbox.equals(other.inbox)
+              && address.equals(other.address)
+              && domain.equals(other.domain);
+    }
+
+    @Override
+    public int hashCode() {
+      return (inbox.hashCode() * 31 + address.hashCode()) * 31 + domain.hashCode();
+    }
+  }
+
+  /**
+   * One email domain on one server.
+   */
+  private static final class DomainKey {
+
+    private final Server linuxServer;
+    private final DomainName domain;
+
+    private DomainKey(Server linuxServer, DomainName domain) {
+      this.linuxServer = linuxServer;
+      this.domain = domain;
+    }
+
+    @Override
+    public String toString() {
+      return domain + " on " + linuxServer;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof DomainKey)) {
+        return false;
+      }
+      DomainKey other = (DomainKey) obj;
+      return
+          linuxServer.equals(other.linuxServer)
+              && domain.equals(other.domain);
+    }
+
+    @Override
+    public int hashCode() {
+      return linuxServer.hashCode() * 31 + domain.hashCode();
+    }
+  }
+
+  /**
+   * One email address in one email domain on one server.
+   */
+  private static final class AddressKey {
+
+    private final DomainKey domain;
+    private final String address;
+
+    private AddressKey(DomainKey domain, String address) {
+      this.domain = domain;
+      this.address = address;
+    }
+
+    @Override
+    public String toString() {
+      return address + '@' + domain;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof AddressKey)) {
+        return false;
+      }
+      AddressKey other = (AddressKey) obj;
+      return
+          domain.equals(other.domain)
+              && address.equals(other.address);
+    }
+
+    @Override
+    public int hashCode() {
+      return domain.hashCode() * 31 + address.hashCode();
+    }
+  }
+
+  /**
+   * Attaches the email aliases.
+   *
+   * @param  conn      the <code>AoservConnector</code> to use
+   * @param  executor  the executor that performs the lookups, adds, and attachments
+   * @param  aliases   the aliases, duplicates are ignored
+   *
+   * @return  the <code>Address</code> or the failure for each alias, in the iteration order of <code>aliases</code>
+   */
+  public static Map<Alias, Outcome<Address>> addEmailAliases(
+      AoservConnector conn,
+      Executor executor,
+      Iterable<Alias> aliases
+  ) throws IOException, SQLException, InterruptedException {
+    // Group by server and domain
+    Set<Alias> unique = new LinkedHashSet<>();
+    Map<DomainKey, Set<String>> wanted = new LinkedHashMap<>();
+    Map<UserServer, Server> servers = new HashMap<>();
+    for (Alias alias : aliases) {
+      if (unique.add(alias)) {
+        Server linuxServer = servers.get(alias.inbox);
+        if (linuxServer == null) {
+          linuxServer = alias.inbox.getServer();
+          servers.put(alias.inbox, linuxServer);
+        }
+        wanted.computeIfAbsent(new DomainKey(linuxServer, alias.domain), k -> new LinkedHashSet<>()).add(alias.address);
+      }
+    }
+    Map<DomainKey, Domain> domains = new ConcurrentHashMap<>();
+
+    // Find the existing addresses, once per domain
+    Map<DomainKey, Outcome<Map<String, Address>>> existing = FanOut.run(executor, wanted.keySet(), key -> {
+      Domain sd = key.linuxServer.getEmailDomain(key.domain);
+      if (sd == null) {
+        throw new SQLException("Unable to find Domain: " + key.domain + " on " + key.linuxServer.getHostname());
+      }
+      Map<String, Address> byName = new ConcurrentHashMap<>();
+      for (Address ea : sd.getEmailAddresses()) {
+        byName.put(ea.getAddress(), ea);
+      }
+      domains.put(key, sd);
+      return byName;
+    });
+
+    // Create only the missing addresses, concurrently across all domains
+    List<AddressKey> toCreate = new ArrayList<>();
+    for (Map.Entry<DomainKey, Set<String>> entry : wanted.entrySet()) {
+      DomainKey key = entry.getKey();
+      Outcome<Map<String, Address>> outcome = existing.get(key);
+      if (outcome.isSuccess()) {
+        for (String address : entry.getValue()) {
+          if (!outcome.getValue().containsKey(address)) {
+            toCreate.add(new AddressKey(key, address));
+          }
+        }
+      }
+    }
+    Map<AddressKey, Outcome<Address>> created = FanOut.run(executor, toCreate, create -> {
+      int eaId = domains.get(create.domain).addEmailAddress(create.address);
+      Address ea = conn.getEmail().getAddress().get(eaId);
+      existing.get(create.domain).getValue().put(create.address, ea);
+      return ea;
+    });
+
+    // Find the addresses already delivered to each inbox
+    Map<UserServer, Outcome<Set<Address>>> attached = FanOut.run(executor, servers.keySet(),
+        inbox -> new HashSet<>(inbox.getEmailAddresses())
+    );
+
+    // Attach concurrently
+    return FanOut.run(executor, unique, alias -> {
+      DomainKey key = new DomainKey(servers.get(alias.inbox), alias.domain);
+      Outcome<Address> create = created.get(new AddressKey(key, alias.address));
+      Address ea = create != null ? create.get() : existing.get(key).get().get(alias.address);
+      if (!attached.get(alias.inbox).get().contains(ea)) {
+        alias.inbox.addEmailAddress(ea);
+      }
+      return ea;
+    });
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2013, 2017, 2018, 2019, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2017, 2018, 2019, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,6 +24,7 @@
 package com.aoindustries.aoserv.examples.email;
 
 import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
 import com.aoindustries.aoserv.client.AoservConnector;
 import com.aoindustries.aoserv.client.SimpleAoservClient;
 import com.aoindustries.aoserv.client.account.Account;
@@ -36,8 +37,21 @@ import com.aoindustries.aoserv.client.linux.User;
 import com.aoindustries.aoserv.client.linux.User.Gecos;
 import com.aoindustries.aoserv.client.linux.UserServer;
 import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FairScheduler;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * An email inbox is a restricted Linux account. It can be used for sending
@@ -56,6 +70,22 @@ public final class AddEmailInbox {
     throw new AssertionError();
   }
 
+  /**
+   * The tables used when provisioning through an <code>AoservConnector</code>,
+   * loaded concurrently once as each fan-out or asynchronous workflow starts.
+   * A single call does not warm up on its own, since a caller making many
+   * calls should warm up once, before the first.
+   */
+  public static final Set<TableWarmup.Table> TABLES = Collections.unmodifiableSet(EnumSet.of(
+      TableWarmup.Table.USERNAME,
+      TableWarmup.Table.PACKAGE,
+      TableWarmup.Table.HOST,
+      TableWarmup.Table.LINUX_SERVER,
+      TableWarmup.Table.LINUX_USER,
+      TableWarmup.Table.LINUX_USER_SERVER,
+      TableWarmup.Table.EMAIL_DOMAIN
+  ));
+
   /**
    * Creates a new email inbox.
    *
@@ -65,6 +95,7 @@ public final class AddEmailInbox {
    * @param  fullName     the user's full name
    * @param  server       the hostname of the server to add the user to
    * @param  address      the part of the email address before the <code>@</code>
+   * @param  domain       the domain of the email address, which must exist on the server
    * @param  password     the password for the new user
    */
   public static void addEmailInbox(
@@ -90,7 +121,7 @@ public final class AddEmailInbox {
     aoClient.addLinuxAccAddress(address, domain, server, username);
 
     // Wait for rebuild
-    aoClient.waitForLinuxAccountRebuild(server);
+    RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(aoClient, server);
 
     // Set the password
     aoClient.setLinuxServerAccountPassword(username, server, password);
@@ -105,6 +136,7 @@ public final class AddEmailInbox {
    * @param  fullName     the user's full name
    * @param  server       the hostname of the server to add the user to
    * @param  address      the part of the email address before the <code>@</code>
+   * @param  domain       the domain of the email address, which must exist on the server
    * @param  password     the password for the new account
    *
    * @return  the new <code>UserServer</code>
@@ -118,6 +150,191 @@ public final class AddEmailInbox {
       String address,
       DomainName domain,
       String password
+  ) throws IOException, SQLException {
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      User la = addLinuxAccount(conn, packageName, username, fullName);
+
+      // Find the Server
+      Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+
+      UserServer lsa = addLinuxServerAccount(conn, la, linuxServer, address, domain);
+
+      // Wait for rebuild
+      RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(linuxServer);
+
+      // Set the password
+      lsa.setPassword(password);
+
+      // Return the new object
+      return lsa;
+    } finally {
+      event.end("AddEmailInbox.addEmailInbox", username);
+    }
+  }
+
+  /**
+   * Creates a new email inbox on many servers at once.  The account-level
+   * steps are performed once, then each server is granted access, has the
+   * email address attached, is rebuilt, and has its password set concurrently.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  executor     the executor that performs the per-server steps
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  fullName     the user's full name
+   * @param  servers      the hostnames of the servers to add the user to
+   * @param  address      the part of the email address before the <code>@</code>
+   * @param  domain       the domain of the email address, which must exist on every server
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   */
+  public static Map<DomainName, Outcome<UserServer>> addEmailInbox(
+      AoservConnector conn,
+      Executor executor,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Set<DomainName> servers,
+      String address,
+      DomainName domain,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName);
+
+      // Grant access, attach the address, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(executor, servers, server -> addToServer(conn, la, server, address, domain, password));
+    } finally {
+      event.end("AddEmailInbox.addEmailInbox", username);
+    }
+  }
+
+  /**
+   * Same as the executor variant, with the per-server steps run through a
+   * scheduler that serves servers fairly and limits the load on the master.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  scheduler    the scheduler that performs the per-server steps
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  fullName     the user's full name
+   * @param  servers      the hostnames of the servers to add the user to
+   * @param  address      the part of the email address before the <code>@</code>
+   * @param  domain       the domain of the email address, which must exist on every server
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   *
+   * @see  FanOut#run(com.aoindustries.aoserv.examples.concurrent.FairScheduler, java.lang.Iterable, com.aoindustries.aoserv.examples.concurrent.FanOut.Task)
+   */
+  public static Map<DomainName, Outcome<UserServer>> addEmailInbox(
+      AoservConnector conn,
+      FairScheduler<DomainName> scheduler,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Set<DomainName> servers,
+      String address,
+      DomainName domain,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName);
+
+      // Grant access, attach the address, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(scheduler, servers, server -> addToServer(conn, la, server, address, domain, password));
+    } finally {
+      event.end("AddEmailInbox.addEmailInbox", username);
+    }
+  }
+
+  /**
+   * Creates a new email inbox without blocking for the rebuild.
+   * The password is set once the Linux account rebuild completes.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  notifier     the notifier that signals rebuild completion
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  fullName     the user's full name
+   * @param  server       the hostname of the server to add the user to
+   * @param  address      the part of the email address before the <code>@</code>
+   * @param  domain       the domain of the email address, which must exist on the server
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the future that completes with the new <code>UserServer</code> once its password is set
+   */
+  public static CompletableFuture<UserServer> addEmailInboxAsync(
+      AoservConnector conn,
+      RebuildNotifier notifier,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      String server,
+      String address,
+      DomainName domain,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName);
+
+      // Find the Server
+      Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+
+      UserServer lsa = addLinuxServerAccount(conn, la, linuxServer, address, domain);
+
+      // Set the password after rebuild
+      return notifier.afterRebuild(linuxServer, RebuildNotifier.Type.LINUX_ACCOUNT, () -> {
+        lsa.setPassword(password);
+        return lsa;
+      }).whenComplete((value, t) -> event.end("AddEmailInbox.addEmailInboxAsync", username));
+    } catch (IOException | SQLException | RuntimeException e) {
+      event.end("AddEmailInbox.addEmailInboxAsync", username);
+      throw e;
+    }
+  }
+
+  /**
+   * Reserves the username for an email inbox, performed once no matter how many servers.
+   */
+  private static User addLinuxAccount(
+      AoservConnector conn,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName
   ) throws IOException, SQLException {
     // Resolve the Package
     com.aoindustries.aoserv.client.billing.Package pk = conn.getBilling().getPackage().get(packageName);
@@ -128,17 +345,29 @@ public final class AddEmailInbox {
 
     // Indicate the username will be used for Linux accounts
     un.addLinuxAccount(Group.MAILONLY, fullName, null, null, null, UserType.EMAIL, Shell.PASSWD);
-    User la = un.getLinuxAccount();
-
-    // Find the Server
-    Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+    return un.getLinuxAccount();
+  }
 
+  /**
+   * Grants the inbox access to one server and attaches its email address,
+   * the steps performed before the rebuild.
+   */
+  private static UserServer addLinuxServerAccount(
+      AoservConnector conn,
+      User la,
+      Server linuxServer,
+      String address,
+      DomainName domain
+  ) throws IOException, SQLException {
     // Grant the new Linux account access to the server
-    int lsaId = la.addLinuxServerAccount(linuxServer, UserServer.getDefaultHomeDirectory(username));
+    int lsaId = la.addLinuxServerAccount(linuxServer, UserServer.getDefaultHomeDirectory(la.getUsername_id()));
     UserServer lsa = conn.getLinux().getUserServer().get(lsaId);
 
     // Find the Domain
     Domain sd = linuxServer.getEmailDomain(domain);
+    if (sd == null) {
+      throw new SQLException("Unable to find Domain: " + domain + " on " + linuxServer);
+    }
 
     // Create the new email address
     int eaId = sd.addEmailAddress(address);
@@ -146,14 +375,34 @@ public final class AddEmailInbox {
 
     // Attach the email address to the new inbox
     lsa.addEmailAddress(ea);
+    return lsa;
+  }
+
+  /**
+   * Performs the per-server steps of an email inbox, through to setting its password.
+   */
+  private static UserServer addToServer(
+      AoservConnector conn,
+      User la,
+      DomainName server,
+      String address,
+      DomainName domain,
+      String password
+  ) throws IOException, SQLException {
+    // Find the Server
+    Server linuxServer = conn.getLinux().getServer().get(server);
+    if (linuxServer == null) {
+      throw new SQLException("Unable to find Server: " + server);
+    }
+
+    UserServer lsa = addLinuxServerAccount(conn, la, linuxServer, address, domain);
 
     // Wait for rebuild
-    linuxServer.waitForLinuxAccountRebuild();
+    RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(linuxServer);
 
     // Set the password
     lsa.setPassword(password);
 
-    // Return the new object
     return lsa;
   }
 }
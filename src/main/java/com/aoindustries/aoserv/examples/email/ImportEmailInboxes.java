@@ -0,0 +1,437 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.email;
+
+import com.aoapps.lang.validation.ValidationException;
+import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.email.Address;
+import com.aoindustries.aoserv.client.email.Domain;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.Shell;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.User.Gecos;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Imports many email inboxes, such as when migrating a customer from another provider.
+ *
+ * <p>Mailbox specifications are read as a stream and processed in batches.  Within
+ * a batch, the passwords are first checked in parallel and any inbox with a weak
+ * password fails before anything is created for it.  The username, Linux account,
+ * server account, and email address stages are then performed concurrently, each
+ * server is waited on once for its rebuild, and the passwords are set concurrently,
+ * a few at a time on each server.  The <code>Server</code> and email
+ * <code>Domain</code> are resolved once and cached for the whole import.</p>
+ *
+ * <p>After each batch, the username of each inbox created successfully is
+ * appended to a checkpoint file.  When restarted with the same checkpoint,
+ * those inboxes are skipped and every other specification is tried again,
+ * including those that failed.  Each stage reuses what already exists, so an
+ * inbox partly created before a crash is completed rather than failing on a
+ * duplicate.  Existing rows are only reused when they could have been left by
+ * the same import: the username must belong to the same package, its Linux
+ * account must be an email inbox, and the email address must not be attached
+ * to any other inbox.  Otherwise that inbox fails.</p>
+ *
+ * @see  AddEmailInbox
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class ImportEmailInboxes {
+
+  /** Make no instances. */
+  private ImportEmailInboxes() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The specification for one new email inbox.
+   */
+  public static final class Spec {
+
+    /**
+     * Parses a specification from one line of tab-separated values, in the order
+     * username, full name, server, address, domain, and password.
+     *
+     * @param  packageName  the name of the <code>Package</code> for the new inbox
+     */
+    public static Spec valueOf(Account.Name packageName, String line) throws ValidationException {
+      String[] fields = line.split("\\t", -1);
+      if (fields.length != 6) {
+        throw new IllegalArgumentException("Expected 6 tab-separated fields, got " + fields.length + ": " + line);
+      }
+      return new Spec(
+          packageName,
+          User.Name.valueOf(fields[0]),
+          Gecos.valueOf(fields[1]),
+          fields[2],
+          fields[3],
+          DomainName.valueOf(fields[4]),
+          fields[5]
+      );
+    }
+
+    private final Account.Name packageName;
+    private final User.Name username;
+    private final Gecos fullName;
+    private final String server;
+    private final String address;
+    private final DomainName domain;
+    private final String password;
+
+    /**
+     * Specifies one new email inbox.
+     *
+     * @param  packageName  the name of the <code>Package</code>
+     * @param  username     the new username to allocate
+     * @param  fullName     the user's full name
+     * @param  server       the hostname of the server to add the user to
+     * @param  address      the part of the email address before the <code>@</code>
+     * @param  domain       the domain of the email address
+     * @param  password     the password for the new user
+     */
+    public Spec(
+        Account.Name packageName,
+        User.Name username,
+        Gecos fullName,
+        String server,
+        String address,
+        DomainName domain,
+        String password
+    ) {
+      this.packageName = packageName;
+      this.username = username;
+      this.fullName = fullName;
+      this.server = server;
+      this.address = address;
+      this.domain = domain;
+      this.password = password;
+    }
+
+    @Override
+    public String toString() {
+      return username + " (" + address + '@' + domain + ") on " + server;
+    }
+  }
+
+  /**
+   * Caches resolutions across batches, shared by all worker threads.
+   */
+  private static final class Resolver {
+
+    private final AoservConnector conn;
+    private final ConcurrentMap<String, Server> servers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<Object>, Domain> domains = new ConcurrentHashMap<>();
+
+    private Resolver(AoservConnector conn) {
+      this.conn = conn;
+    }
+
+    private Server getServer(String server) throws IOException, SQLException {
+      Server linuxServer = servers.get(server);
+      if (linuxServer == null) {
+        com.aoindustries.aoserv.client.net.Host host = conn.getNet().getHost().get(server);
+        linuxServer = host == null ? null : host.getLinuxServer();
+        if (linuxServer == null) {
+          throw new SQLException("Unable to find Server: " + server);
+        }
+        servers.putIfAbsent(server, linuxServer);
+      }
+      return linuxServer;
+    }
+
+    private Domain getDomain(Server linuxServer, DomainName domain) throws IOException, SQLException {
+      List<Object> key = List.of(linuxServer, domain);
+      Domain sd = domains.get(key);
+      if (sd == null) {
+        sd = linuxServer.getEmailDomain(domain);
+        if (sd == null) {
+          throw new SQLException("Unable to find Domain: " + domain + " on " + linuxServer.getHostname());
+        }
+        domains.putIfAbsent(key, sd);
+      }
+      return sd;
+    }
+  }
+
+  /**
+   * Reads the usernames of the inboxes already created.  A line torn by a crash
+   * matches no username, so its inbox is simply tried again.
+   *
+   * @return  the usernames or an empty set when the checkpoint does not exist
+   */
+  private static Set<String> readCheckpoint(Path checkpoint) throws IOException {
+    if (checkpoint == null || !Files.exists(checkpoint)) {
+      return Collections.emptySet();
+    }
+    return new HashSet<>(Files.readAllLines(checkpoint, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Appends the usernames of newly created inboxes to the checkpoint.
+   */
+  private static void writeCheckpoint(Path checkpoint, List<Spec> created) throws IOException {
+    if (!created.isEmpty()) {
+      List<String> lines = new ArrayList<>(created.size());
+      for (Spec spec : created) {
+        lines.add(spec.username.toString());
+      }
+      Files.write(checkpoint, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+  }
+
+  /**
+   * Imports the email inboxes.
+   *
+   * @param  conn        the <code>AoservConnector</code> to use
+   * @param  executor    the executor that performs the stages
+   * @param  cpuPool     the executor that performs the CPU-bound password checks
+   * @param  strength    the required strength of the passwords
+   * @param  specs       the inboxes to create
+   * @param  batchSize   the number of inboxes created per rebuild cycle
+   * @param  checkpoint  the file tracking the inboxes created, for resuming, or <code>null</code> to not checkpoint
+   * @param  results     receives the new <code>UserServer</code> or the failure for each inbox, as each batch completes
+   *
+   * @return  the total number of specifications processed, including any skipped as created by a previous run
+   */
+  public static long importEmailInboxes(
+      AoservConnector conn,
+      Executor executor,
+      Executor cpuPool,
+      PasswordChecker.PasswordStrength strength,
+      Iterator<Spec> specs,
+      int batchSize,
+      Path checkpoint,
+      BiConsumer<? super Spec, ? super Outcome<UserServer>> results
+  ) throws IOException, InterruptedException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize < 1: " + batchSize);
+    }
+    Resolver resolver = new Resolver(conn);
+
+    // Load the tables concurrently instead of on demand, once for the whole import
+    TableWarmup.warmup(conn, AddEmailInbox.TABLES);
+
+    // Skip what was already created
+    Set<String> done = readCheckpoint(checkpoint);
+    long processed = 0;
+    List<Spec> batch = new ArrayList<>(batchSize);
+    while (specs.hasNext()) {
+      batch.clear();
+      while (batch.size() < batchSize && specs.hasNext()) {
+        Spec spec = specs.next();
+        processed++;
+        if (!done.contains(spec.username.toString())) {
+          batch.add(spec);
+        }
+      }
+      if (!batch.isEmpty()) {
+        List<Spec> created = importBatch(conn, executor, cpuPool, strength, resolver, batch, results);
+        if (checkpoint != null) {
+          writeCheckpoint(checkpoint, created);
+        }
+      }
+    }
+    return processed;
+  }
+
+  /**
+   * Imports one batch, reusing any rows left by an earlier, interrupted run.
+   *
+   * @return  the specifications created successfully
+   */
+  private static List<Spec> importBatch(
+      AoservConnector conn,
+      Executor executor,
+      Executor cpuPool,
+      PasswordChecker.PasswordStrength strength,
+      Resolver resolver,
+      List<Spec> batch,
+      BiConsumer<? super Spec, ? super Outcome<UserServer>> results
+  ) throws IOException, InterruptedException {
+    // Check the passwords before creating anything
+    Map<Spec, Outcome<UserServer>> outcomes = new LinkedHashMap<>();
+    List<Spec> strong = new ArrayList<>(batch.size());
+    long checkNanos = System.nanoTime();
+    Map<User.Name, String> checks = new LinkedHashMap<>();
+    for (Spec spec : batch) {
+      checks.put(spec.username, spec.password);
+    }
+    Map<com.aoindustries.aoserv.client.account.User.Name, List<PasswordChecker.Result>> weak =
+        PasswordBatch.checkPasswords(cpuPool, checks, strength);
+    for (Spec spec : batch) {
+      List<PasswordChecker.Result> problems = weak.get(spec.username);
+      if (problems == null) {
+        strong.add(spec);
+        outcomes.put(spec, null);
+      } else {
+        outcomes.put(spec, Outcome.failure(
+            new IllegalArgumentException("Weak password for " + spec.username + ": " + problems),
+            System.nanoTime() - checkNanos
+        ));
+      }
+    }
+
+    // Add concurrently
+    Map<Spec, Outcome<UserServer>> added = FanOut.run(executor, strong, spec -> {
+      Server linuxServer = resolver.getServer(spec.server);
+      Domain sd = resolver.getDomain(linuxServer, spec.domain);
+
+      // Reserve the username
+      com.aoindustries.aoserv.client.account.User un = conn.getAccount().getUser().get(spec.username);
+      if (un == null) {
+        com.aoindustries.aoserv.client.billing.Package pk = conn.getBilling().getPackage().get(spec.packageName);
+        if (pk == null) {
+          throw new SQLException("Unable to find Package: " + spec.packageName);
+        }
+        pk.addUsername(spec.username);
+        un = conn.getAccount().getUser().get(spec.username);
+      } else if (!un.getPackage().getName().equals(spec.packageName)) {
+        // Only reuse a username left by an earlier run for the same package
+        throw new SQLException("Username " + spec.username + " already belongs to Package " + un.getPackage().getName()
+            + ", not " + spec.packageName);
+      }
+
+      // Indicate the username will be used for Linux accounts
+      User la = un.getLinuxAccount();
+      if (la == null) {
+        un.addLinuxAccount(Group.MAILONLY, spec.fullName, null, null, null, UserType.EMAIL, Shell.PASSWD);
+        la = un.getLinuxAccount();
+      } else if (!UserType.EMAIL.equals(la.getType().getName())) {
+        // Never turn an existing login account into an inbox
+        throw new SQLException("Linux account " + spec.username + " is not an email inbox: " + la.getType().getName());
+      }
+
+      // Grant the new Linux account access to the server
+      UserServer lsa = la.getLinuxServerAccount(linuxServer);
+      if (lsa == null) {
+        int lsaId = la.addLinuxServerAccount(linuxServer, UserServer.getDefaultHomeDirectory(spec.username));
+        lsa = conn.getLinux().getUserServer().get(lsaId);
+      }
+
+      // Create the new email address
+      Address ea = sd.getEmailAddress(spec.address);
+      if (ea == null) {
+        int eaId = sd.addEmailAddress(spec.address);
+        ea = conn.getEmail().getAddress().get(eaId);
+      }
+
+      // Attach the email address to the new inbox, unless it already delivers elsewhere
+      List<UserServer> inboxes = ea.getLinuxServerAccounts();
+      if (!inboxes.contains(lsa)) {
+        if (!inboxes.isEmpty()) {
+          throw new SQLException("Address " + ea + " is already attached to another inbox: " + inboxes);
+        }
+        lsa.addEmailAddress(ea);
+      }
+      return lsa;
+    });
+
+    // Wait for rebuild, once per server
+    Map<Server, List<Spec>> byServer = new LinkedHashMap<>();
+    outcomes.putAll(added);
+    for (Map.Entry<Spec, Outcome<UserServer>> entry : added.entrySet()) {
+      Outcome<UserServer> outcome = entry.getValue();
+      if (outcome.isSuccess()) {
+        // Already resolved by the successful add
+        Server linuxServer = resolver.servers.get(entry.getKey().server);
+        byServer.computeIfAbsent(linuxServer, s -> new ArrayList<>()).add(entry.getKey());
+      }
+    }
+    List<Spec> ready = new ArrayList<>(strong.size());
+    for (Map.Entry<Server, Outcome<Object>> entry : FanOut.run(executor, byServer.keySet(), linuxServer -> {
+      RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(linuxServer);
+      return null;
+    }).entrySet()) {
+      Outcome<Object> outcome = entry.getValue();
+      for (Spec spec : byServer.get(entry.getKey())) {
+        if (outcome.isSuccess()) {
+          ready.add(spec);
+        } else {
+          outcomes.put(spec, Outcome.failure(outcome.getError(), outcome.getElapsedNanos()));
+        }
+      }
+    }
+
+    // Set the passwords concurrently, a few at a time on each server
+    Map<Spec, String> passwords = new LinkedHashMap<>();
+    for (Spec spec : ready) {
+      passwords.put(spec, spec.password);
+    }
+    for (Map.Entry<Spec, Outcome<Spec>> entry : PasswordBatch.setPasswords(
+        executor,
+        passwords,
+        spec -> resolver.servers.get(spec.server),
+        PasswordBatch.DEFAULT_MAX_PER_SERVER,
+        (spec, password) -> added.get(spec).getValue().setPassword(password)
+    ).entrySet()) {
+      Spec spec = entry.getKey();
+      Outcome<Spec> outcome = entry.getValue();
+      outcomes.put(
+          spec,
+          outcome.isSuccess()
+              ? Outcome.success(added.get(spec).getValue(), outcome.getElapsedNanos())
+              : Outcome.failure(outcome.getError(), outcome.getElapsedNanos())
+      );
+    }
+
+    List<Spec> created = new ArrayList<>(ready.size());
+    for (Map.Entry<Spec, Outcome<UserServer>> entry : outcomes.entrySet()) {
+      Outcome<UserServer> outcome = entry.getValue();
+      if (outcome.isSuccess()) {
+        created.add(entry.getKey());
+      }
+      results.accept(entry.getKey(), outcome);
+    }
+    return created;
+  }
+}
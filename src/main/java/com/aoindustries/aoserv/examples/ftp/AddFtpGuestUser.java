@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,6 +24,7 @@
 package com.aoindustries.aoserv.examples.ftp;
 
 import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
 import com.aoindustries.aoserv.client.AoservConnector;
 import com.aoindustries.aoserv.client.SimpleAoservClient;
 import com.aoindustries.aoserv.client.account.Account;
@@ -35,8 +36,21 @@ import com.aoindustries.aoserv.client.linux.User;
 import com.aoindustries.aoserv.client.linux.User.Gecos;
 import com.aoindustries.aoserv.client.linux.UserServer;
 import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FairScheduler;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * An FTP Guest User is a restricted Linux Account.  The account is allowed to
@@ -59,6 +73,20 @@ public final class AddFtpGuestUser {
     throw new AssertionError();
   }
 
+  /**
+   * The tables used when provisioning through an <code>AoservConnector</code>,
+   * loaded concurrently once as each fan-out or asynchronous workflow starts.
+   * A single call does not warm up on its own, since a caller making many
+   * calls should warm up once, before the first.
+   */
+  public static final Set<TableWarmup.Table> TABLES = Collections.unmodifiableSet(EnumSet.of(
+      TableWarmup.Table.USERNAME,
+      TableWarmup.Table.PACKAGE,
+      TableWarmup.Table.LINUX_SERVER,
+      TableWarmup.Table.LINUX_USER,
+      TableWarmup.Table.LINUX_USER_SERVER
+  ));
+
   /**
    * Adds a <code>FtpGuestUser</code> to the system.
    *
@@ -94,7 +122,7 @@ public final class AddFtpGuestUser {
     aoClient.addLinuxServerAccount(username, server, home);
 
     // Wait for rebuild
-    aoClient.waitForLinuxAccountRebuild(server);
+    RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(aoClient, server);
 
     // Set the password
     aoClient.setLinuxServerAccountPassword(username, server, password);
@@ -123,6 +151,192 @@ public final class AddFtpGuestUser {
       DomainName server,
       PosixPath home,
       String password
+  ) throws IOException, SQLException {
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      User la = addLinuxAccount(conn, packageName, username, fullName, group);
+
+      // Find the server
+      Server ao = conn.getLinux().getServer().get(server);
+
+      UserServer lsa = addLinuxServerAccount(conn, la, ao, home);
+
+      // Wait for rebuild
+      RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(ao);
+
+      // Set the password
+      lsa.setPassword(password);
+
+      // Return the new object
+      return lsa;
+    } finally {
+      event.end("AddFtpGuestUser.addFtpGuestUser", username);
+    }
+  }
+
+  /**
+   * Adds a <code>FtpGuestUser</code> to many servers at once.  The account-level
+   * steps are performed once, then each server is granted access, rebuilt, and
+   * has its password set concurrently.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  executor     the executor that performs the per-server steps
+   * @param  packageName  the name of the package to add the account to
+   * @param  username     the username to allocate
+   * @param  fullName     the full name of the user
+   * @param  group        the name of the Linux group they can access
+   * @param  servers      the hostnames of the servers to add the account to
+   * @param  home         the directory the user has access to
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   */
+  public static Map<DomainName, Outcome<UserServer>> addFtpGuestUser(
+      AoservConnector conn,
+      Executor executor,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Group.Name group,
+      Set<DomainName> servers,
+      PosixPath home,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName, group);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(executor, servers, server -> addToServer(conn, la, server, home, password));
+    } finally {
+      event.end("AddFtpGuestUser.addFtpGuestUser", username);
+    }
+  }
+
+  /**
+   * Same as the executor variant, with the per-server steps run through a
+   * scheduler that serves servers fairly and limits the load on the master.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  scheduler    the scheduler that performs the per-server steps
+   * @param  packageName  the name of the package to add the account to
+   * @param  username     the username to allocate
+   * @param  fullName     the full name of the user
+   * @param  group        the name of the Linux group they can access
+   * @param  servers      the hostnames of the servers to add the account to
+   * @param  home         the directory the user has access to
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   *
+   * @see  FanOut#run(com.aoindustries.aoserv.examples.concurrent.FairScheduler, java.lang.Iterable, com.aoindustries.aoserv.examples.concurrent.FanOut.Task)
+   */
+  public static Map<DomainName, Outcome<UserServer>> addFtpGuestUser(
+      AoservConnector conn,
+      FairScheduler<DomainName> scheduler,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Group.Name group,
+      Set<DomainName> servers,
+      PosixPath home,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName, group);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(scheduler, servers, server -> addToServer(conn, la, server, home, password));
+    } finally {
+      event.end("AddFtpGuestUser.addFtpGuestUser", username);
+    }
+  }
+
+  /**
+   * Adds a <code>FtpGuestUser</code> to the system without blocking for the rebuild.
+   * The password is set once the Linux account rebuild completes.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  notifier     the notifier that signals rebuild completion
+   * @param  packageName  the name of the package to add the account to
+   * @param  username     the username to allocate
+   * @param  fullName     the full name of the user
+   * @param  group        the name of the Linux group they can access
+   * @param  server       the hostname of the server to add the database to
+   * @param  home         the directory the user has access to
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the future that completes with the new <code>UserServer</code> once its password is set
+   */
+  public static CompletableFuture<UserServer> addFtpGuestUserAsync(
+      AoservConnector conn,
+      RebuildNotifier notifier,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Group.Name group,
+      DomainName server,
+      PosixPath home,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User la = addLinuxAccount(conn, packageName, username, fullName, group);
+
+      // Find the server
+      Server ao = conn.getLinux().getServer().get(server);
+
+      UserServer lsa = addLinuxServerAccount(conn, la, ao, home);
+
+      // Set the password after rebuild
+      return notifier.afterRebuild(ao, RebuildNotifier.Type.LINUX_ACCOUNT, () -> {
+        lsa.setPassword(password);
+        return lsa;
+      }).whenComplete((value, t) -> event.end("AddFtpGuestUser.addFtpGuestUserAsync", username));
+    } catch (IOException | SQLException | RuntimeException e) {
+      event.end("AddFtpGuestUser.addFtpGuestUserAsync", username);
+      throw e;
+    }
+  }
+
+  /**
+   * Reserves the username for an FTP Guest User, performed once no matter how many servers.
+   */
+  private static User addLinuxAccount(
+      AoservConnector conn,
+      Account.Name packageName,
+      User.Name username,
+      Gecos fullName,
+      Group.Name group
   ) throws IOException, SQLException {
     // Resolve the Package
     com.aoindustries.aoserv.client.billing.Package pk = conn.getBilling().getPackage().get(packageName);
@@ -137,21 +351,47 @@ public final class AddFtpGuestUser {
 
     // Limit the FTP transfers to the users home directory
     la.addFtpGuestUser();
+    return la;
+  }
+
+  /**
+   * Grants the user access to one server, the step performed before the rebuild.
+   */
+  private static UserServer addLinuxServerAccount(
+      AoservConnector conn,
+      User la,
+      Server ao,
+      PosixPath home
+  ) throws IOException, SQLException {
+    // Grant the user access to the server
+    int lsaId = la.addLinuxServerAccount(ao, home);
+    return conn.getLinux().getUserServer().get(lsaId);
+  }
 
+  /**
+   * Performs the per-server steps of an FTP Guest User, through to setting its password.
+   */
+  private static UserServer addToServer(
+      AoservConnector conn,
+      User la,
+      DomainName server,
+      PosixPath home,
+      String password
+  ) throws IOException, SQLException {
     // Find the server
     Server ao = conn.getLinux().getServer().get(server);
+    if (ao == null) {
+      throw new SQLException("Unable to find Server: " + server);
+    }
 
-    // Grant the user access to the server
-    int lsaId = la.addLinuxServerAccount(ao, home);
-    UserServer lsa = conn.getLinux().getUserServer().get(lsaId);
+    UserServer lsa = addLinuxServerAccount(conn, la, ao, home);
 
     // Wait for rebuild
-    ao.waitForLinuxAccountRebuild();
+    RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(ao);
 
     // Set the password
     lsa.setPassword(password);
 
-    // Return the new object
     return lsa;
   }
 }
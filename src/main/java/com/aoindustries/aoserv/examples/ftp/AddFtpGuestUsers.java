@@ -0,0 +1,197 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.ftp;
+
+import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.PosixPath;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.Shell;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.User.Gecos;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Adds many FTP Guest Users sharing one Linux group and home directory, such as
+ * giving each client of an agency its own login to the same web site.
+ *
+ * <p>The accounts are added concurrently, the server is waited on once for its
+ * Linux account rebuild, then all passwords are set concurrently.  Hundreds of
+ * users are set up in a single rebuild cycle.</p>
+ *
+ * @see  AddFtpGuestUser
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AddFtpGuestUsers {
+
+  /** Make no instances. */
+  private AddFtpGuestUsers() {
+    throw new AssertionError();
+  }
+
+  /**
+   * One FTP Guest User to add.
+   */
+  public static final class Guest {
+
+    private final User.Name username;
+    private final Gecos fullName;
+    private final String password;
+
+    /**
+     * Specifies one FTP Guest User.
+     *
+     * @param  username  the username to allocate
+     * @param  fullName  the full name of the user
+     * @param  password  the password for the new account
+     */
+    public Guest(User.Name username, Gecos fullName, String password) {
+      this.username = username;
+      this.fullName = fullName;
+      this.password = password;
+    }
+
+    @Override
+    public String toString() {
+      return username.toString();
+    }
+  }
+
+  /**
+   * Adds the <code>FtpGuestUser</code>s to the system.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  executor     the executor that performs the per-user steps
+   * @param  cpuPool      the executor that performs the CPU-bound password checks
+   * @param  strength     the required strength of the passwords
+   * @param  packageName  the name of the package to add the accounts to
+   * @param  group        the name of the Linux group they can access
+   * @param  server       the hostname of the server to add the accounts to
+   * @param  home         the directory all the users have access to
+   * @param  guests       the users to add
+   *
+   * @return  the new <code>UserServer</code> or the failure for each username, in the iteration order of <code>guests</code>
+   *
+   * @throws  IllegalArgumentException  when any password is weak, before anything is created
+   */
+  public static Map<User.Name, Outcome<UserServer>> addFtpGuestUsers(
+      AoservConnector conn,
+      Executor executor,
+      Executor cpuPool,
+      PasswordChecker.PasswordStrength strength,
+      Account.Name packageName,
+      Group.Name group,
+      DomainName server,
+      PosixPath home,
+      Iterable<Guest> guests
+  ) throws IOException, SQLException, InterruptedException {
+    // Check all passwords before creating anything
+    Map<User.Name, String> passwords = new LinkedHashMap<>();
+    for (Guest guest : guests) {
+      passwords.put(guest.username, guest.password);
+    }
+    PasswordBatch.requireStrong(cpuPool, passwords, strength);
+
+    // Load the tables concurrently instead of on demand, once for all users
+    TableWarmup.warmup(conn, AddFtpGuestUser.TABLES);
+
+    // Resolve the Package
+    com.aoindustries.aoserv.client.billing.Package pk = conn.getBilling().getPackage().get(packageName);
+
+    // Find the server
+    Server ao = conn.getLinux().getServer().get(server);
+    if (ao == null) {
+      throw new SQLException("Unable to find Server: " + server);
+    }
+
+    // Add concurrently
+    Map<Guest, Outcome<UserServer>> added = FanOut.run(executor, guests, guest -> {
+      // Allocate the username
+      pk.addUsername(guest.username);
+      com.aoindustries.aoserv.client.account.User un = conn.getAccount().getUser().get(guest.username);
+
+      // Reserve the username for use as a Linux account
+      un.addLinuxAccount(group, guest.fullName, null, null, null, UserType.FTPONLY, Shell.FTPPASSWD);
+      User la = un.getLinuxAccount();
+
+      // Limit the FTP transfers to the users home directory
+      la.addFtpGuestUser();
+
+      // Grant the user access to the server
+      int lsaId = la.addLinuxServerAccount(ao, home);
+      return conn.getLinux().getUserServer().get(lsaId);
+    });
+
+    Map<User.Name, Outcome<UserServer>> outcomes = new LinkedHashMap<>(added.size() * 4 / 3 + 1);
+    List<Guest> ready = new ArrayList<>(added.size());
+    for (Map.Entry<Guest, Outcome<UserServer>> entry : added.entrySet()) {
+      outcomes.put(entry.getKey().username, entry.getValue());
+      if (entry.getValue().isSuccess()) {
+        ready.add(entry.getKey());
+      }
+    }
+    if (!ready.isEmpty()) {
+      // Wait for rebuild, once for all users
+      Outcome<Object> rebuilt = FanOut.call(target -> {
+        RebuildNotifier.Type.LINUX_ACCOUNT.waitFor(target);
+        return null;
+      }, ao);
+      if (!rebuilt.isSuccess()) {
+        for (Guest guest : ready) {
+          outcomes.put(guest.username, Outcome.failure(rebuilt.getError(), rebuilt.getElapsedNanos()));
+        }
+      } else {
+        // Set the passwords, all on the one server concurrently
+        Map<UserServer, String> lsaPasswords = new LinkedHashMap<>();
+        Map<UserServer, User.Name> usernames = new LinkedHashMap<>();
+        for (Guest guest : ready) {
+          UserServer lsa = added.get(guest).getValue();
+          lsaPasswords.put(lsa, guest.password);
+          usernames.put(lsa, guest.username);
+        }
+        for (Map.Entry<UserServer, Outcome<UserServer>> entry : PasswordBatch.setPasswords(executor, lsaPasswords, UserServer::setPassword).entrySet()) {
+          outcomes.put(usernames.get(entry.getKey()), entry.getValue());
+        }
+      }
+    }
+    return outcomes;
+  }
+}
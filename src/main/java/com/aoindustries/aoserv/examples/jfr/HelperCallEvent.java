@@ -0,0 +1,64 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for each call to an example helper, such as
+ * {@link com.aoindustries.aoserv.examples.mysql.AddMysqlUser}, whether it
+ * succeeded or failed.  A call to many servers at once is one event, and an
+ * asynchronous call lasts until its future completes.
+ *
+ * @author  AO Industries, Inc.
+ */
+@Name("com.aoindustries.aoserv.examples.HelperCall")
+@Label("Helper Call")
+@Category({"AOServ", "Examples"})
+@Description("A call to an example helper")
+public class HelperCallEvent extends jdk.jfr.Event {
+
+  @Label("Helper")
+  String helper;
+
+  @Label("Target")
+  @Description("The name or ID of the object created")
+  String target;
+
+  /**
+   * Ends the event, committing it when enabled.  The fields are only
+   * converted to text when the event will be recorded.
+   */
+  public void end(String helper, Object target) {
+    end();
+    if (shouldCommit()) {
+      this.helper = helper;
+      this.target = String.valueOf(target);
+      commit();
+    }
+  }
+}
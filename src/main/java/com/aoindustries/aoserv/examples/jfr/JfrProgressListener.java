@@ -0,0 +1,85 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.jfr;
+
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import com.aoindustries.aoserv.examples.progress.Step;
+
+/**
+ * Records each progress step as a {@link ProvisioningStepEvent}, then forwards
+ * it to another listener.  The duration of a step is only known when reported
+ * with it, and is otherwise recorded as zero.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class JfrProgressListener implements ProgressListener {
+
+  /**
+   * Wraps a listener to also record events.
+   *
+   * @param  delegate  the listener to forward to, or <code>null</code> for none
+   *
+   * @return  the wrapped listener, or <code>delegate</code> itself when the event is not
+   *          enabled in any recording, so nothing is added when not recording
+   */
+  public static ProgressListener wrap(ProgressListener delegate) {
+    if (!new ProvisioningStepEvent().isEnabled()) {
+      return delegate;
+    }
+    return new JfrProgressListener(delegate);
+  }
+
+  private final ProgressListener delegate;
+
+  private JfrProgressListener(ProgressListener delegate) {
+    this.delegate = delegate;
+  }
+
+  private static void commit(Step step, Object id, long elapsedNanos, long stepNanos) {
+    ProvisioningStepEvent event = new ProvisioningStepEvent();
+    if (event.shouldCommit()) {
+      event.step = step.name();
+      event.id = String.valueOf(id);
+      event.stepNanos = stepNanos;
+      event.elapsedNanos = elapsedNanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void progress(Step step, Object id, long elapsedNanos) {
+    commit(step, id, elapsedNanos, 0);
+    if (delegate != null) {
+      delegate.progress(step, id, elapsedNanos);
+    }
+  }
+
+  @Override
+  public void progress(Step step, Object id, long elapsedNanos, long stepNanos) {
+    commit(step, id, elapsedNanos, stepNanos);
+    if (delegate != null) {
+      delegate.progress(step, id, elapsedNanos, stepNanos);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded as each step of a multi-step provisioning operation, such as
+ * {@link com.aoindustries.aoserv.examples.CreateAccount}, completes.
+ *
+ * @see  JfrProgressListener
+ *
+ * @author  AO Industries, Inc.
+ */
+@Name("com.aoindustries.aoserv.examples.ProvisioningStep")
+@Label("Provisioning Step")
+@Category({"AOServ", "Examples"})
+@Description("A completed step of a provisioning operation")
+public class ProvisioningStepEvent extends jdk.jfr.Event {
+
+  @Label("Step")
+  String step;
+
+  @Label("ID")
+  @Description("The name or ID of the object affected")
+  String id;
+
+  @Label("Step Duration")
+  @Description("The time spent performing the step, or zero when not reported")
+  @Timespan(Timespan.NANOSECONDS)
+  long stepNanos;
+
+  @Label("Elapsed")
+  @Description("The time since the operation began")
+  @Timespan(Timespan.NANOSECONDS)
+  long elapsedNanos;
+}
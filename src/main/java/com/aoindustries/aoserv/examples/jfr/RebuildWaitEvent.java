@@ -0,0 +1,60 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for each wait for a daemon rebuild.
+ *
+ * @author  AO Industries, Inc.
+ */
+@Name("com.aoindustries.aoserv.examples.RebuildWait")
+@Label("Rebuild Wait")
+@Category({"AOServ", "Examples"})
+@Description("A blocking wait for a daemon rebuild to complete")
+public class RebuildWaitEvent extends jdk.jfr.Event {
+
+  @Label("Server")
+  String server;
+
+  @Label("Type")
+  String type;
+
+  /**
+   * Ends the event, committing it when enabled.  The fields are only
+   * converted to text when the event will be recorded.
+   */
+  public void end(Object server, Object type) {
+    end();
+    if (shouldCommit()) {
+      this.server = String.valueOf(server);
+      this.type = String.valueOf(type);
+      commit();
+    }
+  }
+}
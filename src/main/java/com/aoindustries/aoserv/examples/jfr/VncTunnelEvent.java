@@ -0,0 +1,85 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for each phase of a
+ * {@link com.aoindustries.aoserv.examples.vnc.VncConsoleTunnel} session.
+ *
+ * @author  AO Industries, Inc.
+ */
+@Name("com.aoindustries.aoserv.examples.VncTunnel")
+@Label("VNC Tunnel")
+@Category({"AOServ", "Examples"})
+@Description("A phase of a VNC console tunnel session")
+public class VncTunnelEvent extends jdk.jfr.Event {
+
+  /**
+   * The phases of a session.  The relay phases carry the number of bytes
+   * relayed in each direction, and the {@link #CLOSE} event spans the whole session.
+   */
+  public enum Phase {
+    ACCEPT,
+    ACCESS_GRANT,
+    DAEMON_CONNECT,
+    RELAY_TO_DAEMON,
+    RELAY_FROM_DAEMON,
+    CLOSE
+  }
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Virtual Server")
+  String virtualServer;
+
+  @Label("Remote Address")
+  String remoteAddress;
+
+  @Label("Bytes")
+  @Description("The number of bytes relayed")
+  @DataAmount
+  long bytes;
+
+  /**
+   * Ends the event, committing it when enabled.  The fields are only
+   * converted to text when the event will be recorded.
+   */
+  public void end(Phase phase, Object virtualServer, Object remoteAddress, long bytes) {
+    end();
+    if (shouldCommit()) {
+      this.phase = phase.name();
+      this.virtualServer = String.valueOf(virtualServer);
+      this.remoteAddress = String.valueOf(remoteAddress);
+      this.bytes = bytes;
+      commit();
+    }
+  }
+}
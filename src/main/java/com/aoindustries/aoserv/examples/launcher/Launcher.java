@@ -0,0 +1,154 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.launcher;
+
+import com.aoapps.lang.util.ErrorPrinter;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single entry point for the command-line examples, designed for fast startup
+ * with an application class-data sharing (AppCDS) archive.
+ *
+ * <p>Only the selected command's class is loaded, by name, so the classes of the
+ * other commands and the client subsystems they use are never loaded or
+ * initialized.  The <code>train</code> command records the common startup path
+ * for archiving: it connects to the master, loads every table the examples use,
+ * initializes the class of every command, and runs a read-only session of the
+ * provisioning REPL that only pings and lists its commands.</p>
+ *
+ * <p>To create and use an archive on Java 11, running from the class path:</p>
+ *
+ * <pre>java -XX:DumpLoadedClassList=aoserv-examples.classlist -cp ... com.aoindustries.aoserv.examples.launcher.Launcher train
+ * java -Xshare:dump -XX:SharedClassListFile=aoserv-examples.classlist -XX:SharedArchiveFile=aoserv-examples.jsa -cp ...
+ * java -XX:SharedArchiveFile=aoserv-examples.jsa -cp ... com.aoindustries.aoserv.examples.launcher.Launcher vnc-console-tunnel ...</pre>
+ *
+ * <p>On Java 13 and newer, the first two steps may be replaced with a single
+ * training run using <code>-XX:ArchiveClassesAtExit=aoserv-examples.jsa</code>.
+ * The archive must be recreated whenever the class path changes.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Launcher {
+
+  /** Make no instances. */
+  private Launcher() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The class name of each command, resolved only when selected.
+   */
+  private static final Map<String, String> commands;
+
+  static {
+    Map<String, String> newCommands = new LinkedHashMap<>();
+    newCommands.put("repl", "com.aoindustries.aoserv.examples.repl.ProvisioningRepl");
+    newCommands.put("vnc-console-tunnel", "com.aoindustries.aoserv.examples.vnc.VncConsoleTunnel");
+    commands = Collections.unmodifiableMap(newCommands);
+  }
+
+  /**
+   * The commands run by the training session of the provisioning REPL, which
+   * change nothing on the master.
+   */
+  private static final String TRAINING_SESSION = "1\tping\n2\thelp\n";
+
+  private static MethodHandle findMain(String className) throws ReflectiveOperationException {
+    return MethodHandles.publicLookup().findStatic(
+        Class.forName(className),
+        "main",
+        MethodType.methodType(void.class, String[].class)
+    );
+  }
+
+  /**
+   * Runs the common startup path of the commands without changing anything:
+   * connects to the master, loads every table the examples use, initializes
+   * every command, and runs a training session of the provisioning REPL.
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  private static void train() throws Throwable {
+    AoservConnector conn = AoservConnector.getConnector();
+    conn.ping();
+
+    // Load the tables and their row classes
+    TableWarmup.warmup(conn, EnumSet.allOf(TableWarmup.Table.class)).get();
+
+    // Initialize every command
+    for (String className : commands.values()) {
+      Class.forName(className, true, Launcher.class.getClassLoader());
+    }
+
+    // Run the REPL on the training session, discarding its results
+    InputStream in = System.in;
+    PrintStream out = System.out;
+    try {
+      System.setIn(new ByteArrayInputStream(TRAINING_SESSION.getBytes(StandardCharsets.UTF_8)));
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      findMain(commands.get("repl")).invokeExact(new String[0]);
+    } finally {
+      System.setIn(in);
+      System.setOut(out);
+    }
+  }
+
+  /**
+   * Runs the selected command.
+   */
+  @SuppressWarnings({"UseOfSystemOutOrSystemErr", "UseSpecificCatch", "TooBroadCatch"})
+  public static void main(String[] args) {
+    String className = args.length == 0 ? null : commands.get(args[0]);
+    if (className == null && (args.length == 0 || !"train".equals(args[0]))) {
+      System.err.println("usage: " + Launcher.class.getName() + " {train|" + String.join("|", commands.keySet()) + "} [args...]");
+      System.exit(1);
+    } else {
+      try {
+        if (className == null) {
+          train();
+        } else {
+          findMain(className).invokeExact(Arrays.copyOfRange(args, 1, args.length));
+        }
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t) {
+        ErrorPrinter.printStackTraces(t, System.err);
+        System.exit(2);
+      }
+    }
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2009, 2017, 2018, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2009, 2017, 2018, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -30,6 +30,7 @@ import com.aoindustries.aoserv.client.account.Account;
 import com.aoindustries.aoserv.client.billing.Package;
 import com.aoindustries.aoserv.client.mysql.Database;
 import com.aoindustries.aoserv.client.mysql.Server;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
 
@@ -84,21 +85,26 @@ public final class AddMysqlDatabase {
       DomainName server,
       Account.Name packageName
   ) throws IOException, SQLException {
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Resolve the Server
+      com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(server);
 
-    // Resolve the Server
-    com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(server);
+      // Resolve the Server
+      Server ms = ao.getMysqlServer(mysqlServer);
 
-    // Resolve the Server
-    Server ms = ao.getMysqlServer(mysqlServer);
+      // Resolve the Package
+      Package pk = conn.getBilling().getPackage().get(packageName);
 
-    // Resolve the Package
-    Package pk = conn.getBilling().getPackage().get(packageName);
+      // Add the Database
+      int mdId = ms.addMysqlDatabase(name, pk);
+      Database md = conn.getMysql().getDatabase().get(mdId);
 
-    // Add the Database
-    int mdId = ms.addMysqlDatabase(name, pk);
-    Database md = conn.getMysql().getDatabase().get(mdId);
-
-    // Return the object
-    return md;
+      // Return the object
+      return md;
+    } finally {
+      event.end("AddMysqlDatabase.addMysqlDatabase", name);
+    }
   }
 }
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,20 +24,43 @@
 package com.aoindustries.aoserv.examples.mysql;
 
 import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
 import com.aoindustries.aoserv.client.AoservConnector;
 import com.aoindustries.aoserv.client.SimpleAoservClient;
 import com.aoindustries.aoserv.client.account.Account;
 import com.aoindustries.aoserv.client.billing.Package;
 import com.aoindustries.aoserv.client.mysql.Database;
+import com.aoindustries.aoserv.client.mysql.DatabaseUser;
 import com.aoindustries.aoserv.client.mysql.Server;
 import com.aoindustries.aoserv.client.mysql.User;
 import com.aoindustries.aoserv.client.mysql.UserServer;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FairScheduler;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Hedge;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.Retry;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Adds a <code>User</code> to the system.
  *
+ * <p>Lookups, rebuild waits, and password changes are retried after a
+ * communication error.  Adds made through an <code>AoservConnector</code> are
+ * retried only after looking up whether the earlier attempt succeeded.</p>
+ *
+ * @see  Retry#DEFAULT
+ *
  * @author  AO Industries, Inc.
  */
 public final class AddMysqlUser {
@@ -47,6 +70,22 @@ public final class AddMysqlUser {
     throw new AssertionError();
   }
 
+  /**
+   * The tables used when provisioning through an <code>AoservConnector</code>,
+   * loaded concurrently once as each fan-out or asynchronous workflow starts.
+   * A single call does not warm up on its own, since a caller making many
+   * calls should warm up once, before the first.
+   */
+  public static final Set<TableWarmup.Table> TABLES = Collections.unmodifiableSet(EnumSet.of(
+      TableWarmup.Table.USERNAME,
+      TableWarmup.Table.PACKAGE,
+      TableWarmup.Table.HOST,
+      TableWarmup.Table.LINUX_SERVER,
+      TableWarmup.Table.MYSQL_SERVER,
+      TableWarmup.Table.MYSQL_DATABASE,
+      TableWarmup.Table.MYSQL_USER
+  ));
+
   /**
    * Adds a <code>User</code> to the system.
    *
@@ -80,10 +119,16 @@ public final class AddMysqlUser {
     aoClient.addMysqlDbUser(database, mysqlServer, server, username, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true);
 
     // Commit the changes before setting the password
-    aoClient.waitForMysqlUserRebuild(server);
+    Retry.DEFAULT.idempotent(() -> {
+      RebuildNotifier.Type.MYSQL_USER.waitFor(aoClient, server);
+      return null;
+    });
 
     // Set the password
-    aoClient.setMysqlServerUserPassword(username, mysqlServer, server, password);
+    Retry.DEFAULT.idempotent(() -> {
+      aoClient.setMysqlServerUserPassword(username, mysqlServer, server, password);
+      return null;
+    });
   }
 
   /**
@@ -108,40 +153,278 @@ public final class AddMysqlUser {
       Database.Name database,
       String password
   ) throws IOException, SQLException {
-    // Find the Package
-    Package pk = conn.getBilling().getPackage().get(packageName);
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      User mu = addUsername(conn, packageName, username);
 
-    // Resolve the Host
-    com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(server);
+      // Return the object
+      return addToServer(conn, mu, mysqlServer, server, database, password);
+    } finally {
+      event.end("AddMysqlUser.addMysqlUser", username);
+    }
+  }
 
-    // Resolve the Server
-    Server ms = ao.getMysqlServer(mysqlServer);
+  /**
+   * Adds a <code>User</code> to many servers at once.  The account-level steps
+   * are performed once, then each server is granted access to its database, is
+   * rebuilt, and has its password set concurrently.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  executor     the executor that performs the per-server steps
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  mysqlServer  the name of the MySQL instance, which must exist on every server
+   * @param  servers      the hostnames of the servers to add the account to
+   * @param  database     the new user will be granted access to this database on every server
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   */
+  public static Map<DomainName, Outcome<UserServer>> addMysqlUser(
+      AoservConnector conn,
+      Executor executor,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name mysqlServer,
+      Set<DomainName> servers,
+      Database.Name database,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User mu = addUsername(conn, packageName, username);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(executor, servers, server -> addToServer(conn, mu, mysqlServer, server, database, password));
+    } finally {
+      event.end("AddMysqlUser.addMysqlUser", username);
+    }
+  }
+
+  /**
+   * Same as the executor variant, with the per-server steps run through a
+   * scheduler that serves servers fairly and limits the load on the master.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  scheduler    the scheduler that performs the per-server steps
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  mysqlServer  the name of the MySQL instance, which must exist on every server
+   * @param  servers      the hostnames of the servers to add the account to
+   * @param  database     the new user will be granted access to this database on every server
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   *
+   * @see  FanOut#run(com.aoindustries.aoserv.examples.concurrent.FairScheduler, java.lang.Iterable, com.aoindustries.aoserv.examples.concurrent.FanOut.Task)
+   */
+  public static Map<DomainName, Outcome<UserServer>> addMysqlUser(
+      AoservConnector conn,
+      FairScheduler<DomainName> scheduler,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name mysqlServer,
+      Set<DomainName> servers,
+      Database.Name database,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User mu = addUsername(conn, packageName, username);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(scheduler, servers, server -> addToServer(conn, mu, mysqlServer, server, database, password));
+    } finally {
+      event.end("AddMysqlUser.addMysqlUser", username);
+    }
+  }
+
+  /**
+   * Adds a <code>User</code> to the system without blocking for the rebuild.
+   * The password is set once the MySQL user rebuild completes.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  notifier     the notifier that signals rebuild completion
+   * @param  packageName  the name of the <code>Package</code>
+   * @param  username     the new username to allocate
+   * @param  mysqlServer  the name of the MySQL instance
+   * @param  server       the hostname of the server to add the account to
+   * @param  database     the new user will be granted access to this database
+   * @param  password     the password for the new account
+   * @param  strength     the required strength of the password, checked before anything is created
+   *
+   * @return  the future that completes with the new <code>UserServer</code> once its password is set
+   */
+  public static CompletableFuture<UserServer> addMysqlUserAsync(
+      AoservConnector conn,
+      RebuildNotifier notifier,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name mysqlServer,
+      DomainName server,
+      Database.Name database,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      com.aoindustries.aoserv.client.linux.Server ao = getServer(conn, server);
+      User mu = addUsername(conn, packageName, username);
+      UserServer msu = addMysqlServerUser(conn, mu, ao, mysqlServer, database);
+
+      // Set the password after rebuild
+      return notifier.afterRebuild(ao, RebuildNotifier.Type.MYSQL_USER, () -> {
+        Retry.DEFAULT.idempotent(() -> {
+          msu.setPassword(password);
+          return null;
+        });
+        return msu;
+      }).whenComplete((value, t) -> event.end("AddMysqlUser.addMysqlUserAsync", username));
+    } catch (IOException | SQLException | RuntimeException e) {
+      event.end("AddMysqlUser.addMysqlUserAsync", username);
+      throw e;
+    }
+  }
+
+  /**
+   * Resolves the Host.
+   */
+  private static com.aoindustries.aoserv.client.linux.Server getServer(
+      AoservConnector conn,
+      DomainName server
+  ) throws IOException, SQLException {
+    com.aoindustries.aoserv.client.linux.Server ao = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> conn.getLinux().getServer().get(server));
+    if (ao == null) {
+      throw new SQLException("Unable to find Server: " + server);
+    }
+    return ao;
+  }
+
+  /**
+   * Reserves the username for MySQL, performed once no matter how many servers.
+   */
+  private static User addUsername(
+      AoservConnector conn,
+      Account.Name packageName,
+      User.Name username
+  ) throws IOException, SQLException {
+    // Find the Package
+    Package pk = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> conn.getBilling().getPackage().get(packageName));
+    if (pk == null) {
+      throw new SQLException("Unable to find Package: " + packageName);
+    }
 
     // Reserve the username
-    pk.addUsername(username);
-    com.aoindustries.aoserv.client.account.User un = conn.getAccount().getUser().get(username);
+    com.aoindustries.aoserv.client.account.User un = Retry.DEFAULT.add(
+        () -> {
+          pk.addUsername(username);
+          return conn.getAccount().getUser().get(username);
+        },
+        () -> conn.getAccount().getUser().get(username)
+    );
 
     // Indicate the username will be used for MySQL accounts
-    un.addMysqlUser();
-    User mu = un.getMysqlUser();
+    return Retry.DEFAULT.add(
+        () -> {
+          un.addMysqlUser();
+          return un.getMysqlUser();
+        },
+        un::getMysqlUser
+    );
+  }
+
+  /**
+   * Grants the user access to the MySQL instance and its database on one host,
+   * the steps performed before the rebuild.
+   */
+  private static UserServer addMysqlServerUser(
+      AoservConnector conn,
+      User mu,
+      com.aoindustries.aoserv.client.linux.Server ao,
+      Server.Name mysqlServer,
+      Database.Name database
+  ) throws IOException, SQLException {
+    // Resolve the Server
+    Server ms = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> ao.getMysqlServer(mysqlServer));
+    if (ms == null) {
+      throw new SQLException("Unable to find MySQL Server: " + mysqlServer + " on " + ao);
+    }
 
     // Grant access to the server
-    int msuId = mu.addMysqlServerUser(ms, UserServer.ANY_LOCAL_HOST);
-    UserServer msu = conn.getMysql().getUserServer().get(msuId);
+    UserServer msu = Retry.DEFAULT.add(
+        () -> conn.getMysql().getUserServer().get(mu.addMysqlServerUser(ms, UserServer.ANY_LOCAL_HOST)),
+        () -> mu.getMysqlServerUser(ms)
+    );
 
     // Find the Database
-    Database md = ms.getMysqlDatabase(database);
+    Database md = Hedge.LOOKUPS.idempotent(Retry.DEFAULT, () -> ms.getMysqlDatabase(database));
+    if (md == null) {
+      throw new SQLException("Unable to find Database: " + database + " on " + ao);
+    }
 
     // Grant access to the database
-    conn.getMysql().getDatabaseUser().addMysqlDbUser(md, msu, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true, true);
+    Retry.DEFAULT.add(
+        () -> MysqlGrantMatrix.addMysqlDbUser(conn, md, msu, MysqlPrivileges.ALL),
+        () -> {
+          DatabaseUser mdu = md.getMysqlDbUser(msu);
+          return mdu == null ? null : mdu.getPkey();
+        }
+    );
+    return msu;
+  }
+
+  /**
+   * Performs the per-server steps of a MySQL user, through to setting its password.
+   */
+  private static UserServer addToServer(
+      AoservConnector conn,
+      User mu,
+      Server.Name mysqlServer,
+      DomainName server,
+      Database.Name database,
+      String password
+  ) throws IOException, SQLException {
+    com.aoindustries.aoserv.client.linux.Server ao = getServer(conn, server);
+    UserServer msu = addMysqlServerUser(conn, mu, ao, mysqlServer, database);
 
     // Commit the changes before setting the password
-    ao.waitForMysqlUserRebuild();
+    Retry.DEFAULT.idempotent(() -> {
+      RebuildNotifier.Type.MYSQL_USER.waitFor(ao);
+      return null;
+    });
 
     // Set the password
-    msu.setPassword(password);
+    Retry.DEFAULT.idempotent(() -> {
+      msu.setPassword(password);
+      return null;
+    });
 
-    // Return the object
     return msu;
   }
 }
@@ -0,0 +1,303 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.mysql;
+
+import com.aoapps.net.DomainName;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.mysql.Database;
+import com.aoindustries.aoserv.client.mysql.DatabaseUser;
+import com.aoindustries.aoserv.client.mysql.UserServer;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.mysql.MysqlPrivileges.Privilege;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Grants many users access to many databases at once.  The desired grants are
+ * accumulated as a matrix of (database, user, privileges), then compared with
+ * the existing <code>DatabaseUser</code> table so that only the missing grants
+ * are added.  The additions are performed concurrently, with a single
+ * <code>waitForMysqlUserRebuild</code> per server at the end.  Existing grants
+ * with other privileges are reported in the {@link Result}, and are never
+ * replaced in a way that takes privileges away.
+ *
+ * <p>For example, to grant a role to 50 users across 200 databases:</p>
+ * <pre>new MysqlGrantMatrix()
+ *     .grant(databases, users, MysqlPrivileges.APPLICATION)
+ *     .apply(conn, executor, false)
+ *     .getOutcomes();</pre>
+ *
+ * @see  AddMysqlUser
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class MysqlGrantMatrix {
+
+  private static final class Grant {
+
+    private final Database md;
+    private final UserServer msu;
+    private MysqlPrivileges privileges;
+
+    private Grant(Database md, UserServer msu, MysqlPrivileges privileges) {
+      this.md = md;
+      this.msu = msu;
+      this.privileges = privileges;
+    }
+  }
+
+  /**
+   * An existing grant whose privileges differ from those desired.
+   */
+  public static final class Difference {
+
+    private final DatabaseUser existing;
+    private final MysqlPrivileges desired;
+    private final boolean replaced;
+
+    private Difference(DatabaseUser existing, MysqlPrivileges desired, boolean replaced) {
+      this.existing = existing;
+      this.desired = desired;
+      this.replaced = replaced;
+    }
+
+    @Override
+    public String toString() {
+      return existing + ": " + MysqlPrivileges.of(existing) + " -> " + desired + (replaced ? " (replaced)" : " (skipped)");
+    }
+
+    /**
+     * Gets the existing grant.
+     */
+    public DatabaseUser getExisting() {
+      return existing;
+    }
+
+    /**
+     * Gets the desired privileges.
+     */
+    public MysqlPrivileges getDesired() {
+      return desired;
+    }
+
+    /**
+     * Checks if the existing grant was replaced with the desired privileges.
+     * A grant is only replaced when requested and the desired privileges are a
+     * superset of the existing privileges.
+     */
+    public boolean isReplaced() {
+      return replaced;
+    }
+  }
+
+  /**
+   * The results of {@link #apply(com.aoindustries.aoserv.client.AoservConnector, java.util.concurrent.Executor, boolean)}.
+   */
+  public static final class Result {
+
+    private final Map<DomainName, Outcome<Integer>> outcomes;
+    private final List<Difference> differences;
+
+    private Result(Map<DomainName, Outcome<Integer>> outcomes, List<Difference> differences) {
+      this.outcomes = outcomes;
+      this.differences = differences;
+    }
+
+    /**
+     * Gets the number of grants added or the first failure for each server.
+     */
+    public Map<DomainName, Outcome<Integer>> getOutcomes() {
+      return outcomes;
+    }
+
+    /**
+     * Gets the existing grants whose privileges differ from those desired,
+     * whether replaced or not.
+     */
+    public List<Difference> getDifferences() {
+      return differences;
+    }
+  }
+
+  private static long key(int databaseId, int userServerId) {
+    return ((long) databaseId << 32) | (userServerId & 0xffffffffL);
+  }
+
+  /**
+   * Adds a <code>DatabaseUser</code> with the given privileges.
+   *
+   * @return  the ID of the new <code>DatabaseUser</code>
+   */
+  public static int addMysqlDbUser(AoservConnector conn, Database md, UserServer msu, MysqlPrivileges privileges)
+      throws IOException, SQLException {
+    return conn.getMysql().getDatabaseUser().addMysqlDbUser(
+        md,
+        msu,
+        privileges.has(Privilege.SELECT),
+        privileges.has(Privilege.INSERT),
+        privileges.has(Privilege.UPDATE),
+        privileges.has(Privilege.DELETE),
+        privileges.has(Privilege.CREATE),
+        privileges.has(Privilege.DROP),
+        privileges.has(Privilege.REFERENCES),
+        privileges.has(Privilege.INDEX),
+        privileges.has(Privilege.ALTER),
+        privileges.has(Privilege.CREATE_TEMPORARY_TABLES),
+        privileges.has(Privilege.LOCK_TABLES),
+        privileges.has(Privilege.CREATE_VIEW),
+        privileges.has(Privilege.SHOW_VIEW),
+        privileges.has(Privilege.CREATE_ROUTINE),
+        privileges.has(Privilege.ALTER_ROUTINE),
+        privileges.has(Privilege.EXECUTE),
+        privileges.has(Privilege.EVENT),
+        privileges.has(Privilege.TRIGGER)
+    );
+  }
+
+  /**
+   * The desired grants, keyed by database and user IDs.
+   */
+  private final Map<Long, Grant> grants = new LinkedHashMap<>();
+
+  /**
+   * Adds a grant to the matrix.  When the same database and user are granted more
+   * than once, the privileges are combined.
+   *
+   * @throws  IllegalArgumentException  when the database and user are on different MySQL servers
+   */
+  public MysqlGrantMatrix grant(Database md, UserServer msu, MysqlPrivileges privileges) throws IOException, SQLException {
+    if (!md.getMysqlServer().equals(msu.getMysqlServer())) {
+      throw new IllegalArgumentException("Database and UserServer are on different MySQL servers: " + md + ", " + msu);
+    }
+    Grant grant = grants.computeIfAbsent(key(md.getPkey(), msu.getPkey()), k -> new Grant(md, msu, privileges));
+    grant.privileges = grant.privileges.union(privileges);
+    return this;
+  }
+
+  /**
+   * Grants every user access to every database on the same MySQL server.
+   * Pairs on different MySQL servers are skipped.
+   */
+  public MysqlGrantMatrix grant(Iterable<Database> databases, Iterable<UserServer> users, MysqlPrivileges privileges)
+      throws IOException, SQLException {
+    for (Database md : databases) {
+      com.aoindustries.aoserv.client.mysql.Server ms = md.getMysqlServer();
+      for (UserServer msu : users) {
+        if (msu.getMysqlServer().equals(ms)) {
+          grant(md, msu, privileges);
+        }
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Adds the missing grants.
+   *
+   * @param  conn              the <code>AoservConnector</code> to use
+   * @param  executor          the executor that performs the additions
+   * @param  replaceDiffering  when <code>true</code>, existing grants with a subset of the desired
+   *                           privileges are removed and added again; otherwise they are left as-is.
+   *                           Grants with any privilege not desired are never replaced.  A database
+   *                           and user may have only one grant and it cannot be altered in place, so
+   *                           the user has no access to the database between the removal and addition.
+   *
+   * @return  the number of grants added or the first failure for each server, along with every
+   *          existing grant that differs from the desired privileges
+   */
+  public Result apply(AoservConnector conn, Executor executor, boolean replaceDiffering)
+      throws IOException, SQLException, InterruptedException {
+    // Find the grants not already in place
+    Map<Long, DatabaseUser> existing = new HashMap<>();
+    for (DatabaseUser mdu : conn.getMysql().getDatabaseUser().getRows()) {
+      long key = key(mdu.getMysqlDatabase().getPkey(), mdu.getMysqlServerUser().getPkey());
+      if (grants.containsKey(key)) {
+        existing.put(key, mdu);
+      }
+    }
+    List<Grant> missing = new ArrayList<>();
+    List<Difference> differences = new ArrayList<>();
+    for (Map.Entry<Long, Grant> entry : grants.entrySet()) {
+      Grant grant = entry.getValue();
+      DatabaseUser mdu = existing.get(entry.getKey());
+      if (mdu == null) {
+        missing.add(grant);
+      } else {
+        MysqlPrivileges current = MysqlPrivileges.of(mdu);
+        if (!current.equals(grant.privileges)) {
+          // Only replace when no privilege would be taken away
+          boolean replace = replaceDiffering && grant.privileges.containsAll(current);
+          differences.add(new Difference(mdu, grant.privileges, replace));
+          if (replace) {
+            missing.add(grant);
+          }
+        }
+      }
+    }
+
+    // Add concurrently
+    Map<Grant, Outcome<Integer>> added = FanOut.run(executor, missing, grant -> {
+      DatabaseUser mdu = existing.get(key(grant.md.getPkey(), grant.msu.getPkey()));
+      if (mdu != null) {
+        mdu.remove();
+      }
+      return addMysqlDbUser(conn, grant.md, grant.msu, grant.privileges);
+    });
+
+    // Group results by server
+    Map<DomainName, com.aoindustries.aoserv.client.linux.Server> servers = new LinkedHashMap<>();
+    Map<DomainName, Integer> counts = new HashMap<>();
+    Map<DomainName, Throwable> errors = new HashMap<>();
+    for (Map.Entry<Grant, Outcome<Integer>> entry : added.entrySet()) {
+      com.aoindustries.aoserv.client.linux.Server linuxServer = entry.getKey().md.getMysqlServer().getLinuxServer();
+      DomainName hostname = linuxServer.getHostname();
+      servers.putIfAbsent(hostname, linuxServer);
+      Outcome<Integer> outcome = entry.getValue();
+      if (outcome.isSuccess()) {
+        counts.merge(hostname, 1, Integer::sum);
+      } else {
+        errors.putIfAbsent(hostname, outcome.getError());
+      }
+    }
+
+    // Wait once per server
+    Map<DomainName, Outcome<Integer>> outcomes = FanOut.run(executor, servers.keySet(), hostname -> {
+      RebuildNotifier.Type.MYSQL_USER.waitFor(servers.get(hostname));
+      return counts.getOrDefault(hostname, 0);
+    });
+    for (Map.Entry<DomainName, Throwable> entry : errors.entrySet()) {
+      DomainName hostname = entry.getKey();
+      outcomes.put(hostname, Outcome.failure(entry.getValue(), outcomes.get(hostname).getElapsedNanos()));
+    }
+    return new Result(outcomes, differences);
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.mysql;
+
+import com.aoindustries.aoserv.client.mysql.DatabaseUser;
+
+/**
+ * A compact set of the privileges a <code>User</code> may be granted on a
+ * <code>Database</code>, stored as the bits of an <code>int</code>.  Named
+ * instances serve as reusable grant profiles.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class MysqlPrivileges {
+
+  /**
+   * The privileges, in the order of the parameters to <code>addMysqlDbUser</code>.
+   */
+  public enum Privilege {
+    SELECT,
+    INSERT,
+    UPDATE,
+    DELETE,
+    CREATE,
+    DROP,
+    REFERENCES,
+    INDEX,
+    ALTER,
+    CREATE_TEMPORARY_TABLES,
+    LOCK_TABLES,
+    CREATE_VIEW,
+    SHOW_VIEW,
+    CREATE_ROUTINE,
+    ALTER_ROUTINE,
+    EXECUTE,
+    EVENT,
+    TRIGGER;
+
+    private int bit() {
+      return 1 << ordinal();
+    }
+  }
+
+  /**
+   * Creates a named set of privileges.
+   */
+  public static MysqlPrivileges of(String name, Privilege ... privileges) {
+    int bits = 0;
+    for (Privilege privilege : privileges) {
+      bits |= privilege.bit();
+    }
+    return new MysqlPrivileges(name, bits);
+  }
+
+  /**
+   * Every privilege, as granted by {@link AddMysqlUser}.
+   */
+  public static final MysqlPrivileges ALL = of("all", Privilege.values());
+
+  /**
+   * Read-only access to data.
+   */
+  public static final MysqlPrivileges READ_ONLY = of("read-only", Privilege.SELECT, Privilege.SHOW_VIEW);
+
+  /**
+   * Access to read and modify data and the schema, but not drop databases or routines,
+   * suitable for an application user.
+   */
+  public static final MysqlPrivileges APPLICATION = of(
+      "application",
+      Privilege.SELECT,
+      Privilege.INSERT,
+      Privilege.UPDATE,
+      Privilege.DELETE,
+      Privilege.CREATE,
+      Privilege.INDEX,
+      Privilege.ALTER,
+      Privilege.CREATE_TEMPORARY_TABLES,
+      Privilege.LOCK_TABLES,
+      Privilege.CREATE_VIEW,
+      Privilege.SHOW_VIEW,
+      Privilege.EXECUTE
+  );
+
+  /**
+   * Gets the privileges currently granted by an existing <code>DatabaseUser</code>.
+   */
+  public static MysqlPrivileges of(DatabaseUser mdu) {
+    int bits = 0;
+    if (mdu.canSelect()) {
+      bits |= Privilege.SELECT.bit();
+    }
+    if (mdu.canInsert()) {
+      bits |= Privilege.INSERT.bit();
+    }
+    if (mdu.canUpdate()) {
+      bits |= Privilege.UPDATE.bit();
+    }
+    if (mdu.canDelete()) {
+      bits |= Privilege.DELETE.bit();
+    }
+    if (mdu.canCreate()) {
+      bits |= Privilege.CREATE.bit();
+    }
+    if (mdu.canDrop()) {
+      bits |= Privilege.DROP.bit();
+    }
+    if (mdu.canReference()) {
+      bits |= Privilege.REFERENCES.bit();
+    }
+    if (mdu.canIndex()) {
+      bits |= Privilege.INDEX.bit();
+    }
+    if (mdu.canAlter()) {
+      bits |= Privilege.ALTER.bit();
+    }
+    if (mdu.canCreateTempTable()) {
+      bits |= Privilege.CREATE_TEMPORARY_TABLES.bit();
+    }
+    if (mdu.canLockTables()) {
+      bits |= Privilege.LOCK_TABLES.bit();
+    }
+    if (mdu.canCreateView()) {
+      bits |= Privilege.CREATE_VIEW.bit();
+    }
+    if (mdu.canShowView()) {
+      bits |= Privilege.SHOW_VIEW.bit();
+    }
+    if (mdu.canCreateRoutine()) {
+      bits |= Privilege.CREATE_ROUTINE.bit();
+    }
+    if (mdu.canAlterRoutine()) {
+      bits |= Privilege.ALTER_ROUTINE.bit();
+    }
+    if (mdu.canExecute()) {
+      bits |= Privilege.EXECUTE.bit();
+    }
+    if (mdu.canEvent()) {
+      bits |= Privilege.EVENT.bit();
+    }
+    if (mdu.canTrigger()) {
+      bits |= Privilege.TRIGGER.bit();
+    }
+    return new MysqlPrivileges(null, bits);
+  }
+
+  private final String name;
+  private final int bits;
+
+  private MysqlPrivileges(String name, int bits) {
+    this.name = name;
+    this.bits = bits;
+  }
+
+  @Override
+  public String toString() {
+    if (name != null) {
+      return name;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Privilege privilege : Privilege.values()) {
+      if (has(privilege)) {
+        if (sb.length() > 0) {
+          sb.append(',');
+        }
+        sb.append(privilege.name());
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Two sets are equal when they contain the same privileges, regardless of name.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof MysqlPrivileges) && bits == ((MysqlPrivileges) obj).bits;
+  }
+
+  @Override
+  public int hashCode() {
+    return bits;
+  }
+
+  /**
+   * Gets the name of this profile.
+   *
+   * @return  the name or <code>null</code> when unnamed
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Checks if the given privilege is in this set.
+   */
+  public boolean has(Privilege privilege) {
+    return (bits & privilege.bit()) != 0;
+  }
+
+  /**
+   * Checks if every privilege in the given set is also in this set.
+   */
+  public boolean containsAll(MysqlPrivileges other) {
+    return (bits & other.bits) == other.bits;
+  }
+
+  /**
+   * Gets the union of this set and another.
+   */
+  public MysqlPrivileges union(MysqlPrivileges other) {
+    int union = bits | other.bits;
+    return union == bits ? this : new MysqlPrivileges(null, union);
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.placement;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.examples.mysql.AddMysqlDatabase;
+import com.aoindustries.aoserv.examples.postgres.AddPostgresDatabase;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Predicate;
+
+/**
+ * Chooses the MySQL or PostgreSQL server for new databases, spreading them
+ * evenly instead of piling onto a hard-coded server.
+ *
+ * <p>Each candidate is scored by its number of databases and users, plus the
+ * databases of all instances on the same host, since instances on one host
+ * compete for the same resources.  The least-loaded candidate is chosen.  The
+ * counts come from an in-memory snapshot that is rebuilt once it is older than
+ * the refresh interval, or periodically in the background with
+ * {@link #scheduleRefresh(java.util.concurrent.ScheduledExecutorService)}.
+ * Between refreshes, each choice is counted against its candidate, so a burst
+ * of placements still spreads across servers.  When a database cannot be added,
+ * its choice is released again, unless the database was added after all.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class DatabasePlacement {
+
+  /**
+   * The weight of each user relative to each database.
+   */
+  private static final double USER_WEIGHT = 0.25;
+
+  /**
+   * The weight of each database on the same host relative to each database on the instance itself.
+   */
+  private static final double HOST_WEIGHT = 0.5;
+
+  /**
+   * The candidates of one kind of server, with their scores at the time of the snapshot.
+   */
+  private static final class Candidates<S> {
+
+    private final List<S> servers;
+    private final double[] scores;
+    private final int[] placed;
+
+    private Candidates(List<S> servers, double[] scores) {
+      this.servers = servers;
+      this.scores = scores;
+      this.placed = new int[servers.size()];
+    }
+
+    private synchronized S choose(Predicate<? super S> filter) {
+      int best = -1;
+      double bestScore = Double.MAX_VALUE;
+      for (int i = 0, size = servers.size(); i < size; i++) {
+        double score = scores[i] + placed[i];
+        if (score < bestScore && filter.test(servers.get(i))) {
+          best = i;
+          bestScore = score;
+        }
+      }
+      if (best == -1) {
+        return null;
+      }
+      placed[best]++;
+      return servers.get(best);
+    }
+
+    private synchronized void release(S server) {
+      int index = servers.indexOf(server);
+      if (index != -1 && placed[index] > 0) {
+        placed[index]--;
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ServerOf<R, S> {
+    S get(R row) throws IOException, SQLException;
+  }
+
+  /**
+   * Checks whether a database exists.
+   */
+  @FunctionalInterface
+  private interface Exists {
+    boolean exists() throws IOException, SQLException;
+  }
+
+  /**
+   * Releases a choice after its database could not be added, unless the database
+   * exists anyway, such as when only the response was lost.  When the check itself
+   * fails, the choice is kept and the failure is added to the original error.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private static <S> void release(Candidates<S> candidates, S server, Throwable error, Exists added) {
+    try {
+      if (!added.exists()) {
+        candidates.release(server);
+      }
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      error.addSuppressed(t);
+    }
+  }
+
+  /**
+   * Counts rows per instance, at the given index of each instance's counts.
+   * Rows of instances not in the map, such as those added since the instances
+   * were read, are ignored.
+   */
+  private static <R, S> void count(Iterable<R> rows, ServerOf<? super R, ? extends S> serverOf, Map<S, int[]> counts, int index)
+      throws IOException, SQLException {
+    for (R row : rows) {
+      int[] serverCounts = counts.get(serverOf.get(row));
+      if (serverCounts != null) {
+        serverCounts[index]++;
+      }
+    }
+  }
+
+  /**
+   * Scores each instance by its counts and the databases on its host.
+   */
+  private static <S> Candidates<S> score(Map<S, int[]> counts, Map<Server, Integer> hostDatabases, ServerOf<? super S, Server> linuxServerOf)
+      throws IOException, SQLException {
+    List<S> servers = new ArrayList<>(counts.keySet());
+    double[] scores = new double[servers.size()];
+    for (int i = 0; i < scores.length; i++) {
+      S server = servers.get(i);
+      int[] serverCounts = counts.get(server);
+      int databases = serverCounts[0];
+      // Host databases include this instance's own, which are already counted in full
+      scores[i] = databases + serverCounts[1] * USER_WEIGHT
+          + (hostDatabases.get(linuxServerOf.get(server)) - databases) * HOST_WEIGHT;
+    }
+    return new Candidates<>(servers, scores);
+  }
+
+  private static final class Snapshot {
+
+    private final Candidates<com.aoindustries.aoserv.client.mysql.Server> mysql;
+    private final Candidates<com.aoindustries.aoserv.client.postgresql.Server> postgres;
+
+    private Snapshot(AoservConnector conn) throws IOException, SQLException {
+      // Count databases and users per instance
+      Map<com.aoindustries.aoserv.client.mysql.Server, int[]> mysqlCounts = new HashMap<>();
+      for (com.aoindustries.aoserv.client.mysql.Server ms : conn.getMysql().getServer().getRows()) {
+        mysqlCounts.put(ms, new int[2]);
+      }
+      count(conn.getMysql().getDatabase().getRows(), md -> md.getMysqlServer(), mysqlCounts, 0);
+      count(conn.getMysql().getUserServer().getRows(), msu -> msu.getMysqlServer(), mysqlCounts, 1);
+      Map<com.aoindustries.aoserv.client.postgresql.Server, int[]> postgresCounts = new HashMap<>();
+      for (com.aoindustries.aoserv.client.postgresql.Server ps : conn.getPostgresql().getServer().getRows()) {
+        postgresCounts.put(ps, new int[2]);
+      }
+      count(conn.getPostgresql().getDatabase().getRows(), pd -> pd.getPostgresServer(), postgresCounts, 0);
+      count(conn.getPostgresql().getUserServer().getRows(), psu -> psu.getPostgresServer(), postgresCounts, 1);
+
+      // Count per host
+      Map<Server, Integer> hostDatabases = new HashMap<>();
+      for (Map.Entry<com.aoindustries.aoserv.client.mysql.Server, int[]> entry : mysqlCounts.entrySet()) {
+        hostDatabases.merge(entry.getKey().getLinuxServer(), entry.getValue()[0], Integer::sum);
+      }
+      for (Map.Entry<com.aoindustries.aoserv.client.postgresql.Server, int[]> entry : postgresCounts.entrySet()) {
+        hostDatabases.merge(entry.getKey().getLinuxServer(), entry.getValue()[0], Integer::sum);
+      }
+
+      // Score
+      mysql = score(mysqlCounts, hostDatabases, ms -> ms.getLinuxServer());
+      postgres = score(postgresCounts, hostDatabases, ps -> ps.getLinuxServer());
+    }
+  }
+
+  private final AoservConnector conn;
+  private final SnapshotCache<Snapshot> snapshot;
+
+  /**
+   * Creates a new placement engine.
+   *
+   * @param  conn           the <code>AoservConnector</code> to use
+   * @param  refreshMillis  the age after which the snapshot is rebuilt
+   */
+  public DatabasePlacement(AoservConnector conn, long refreshMillis) {
+    this.conn = conn;
+    this.snapshot = new SnapshotCache<>(() -> new Snapshot(conn), refreshMillis);
+  }
+
+  /**
+   * Rebuilds the snapshot now.
+   */
+  public void refresh() throws IOException, SQLException, InterruptedException {
+    snapshot.refresh();
+  }
+
+  /**
+   * Rebuilds the snapshot in the background once per refresh interval, so that
+   * choices never wait on a rebuild.
+   *
+   * @return  the future that cancels the periodic refresh
+   */
+  public ScheduledFuture<?> scheduleRefresh(ScheduledExecutorService scheduler) {
+    return snapshot.schedule(scheduler);
+  }
+
+  /**
+   * Chooses the least-loaded MySQL server.
+   *
+   * @param  filter  limits the candidates, such as by version or host
+   *
+   * @return  the server or <code>null</code> when no candidate matches the filter
+   */
+  public com.aoindustries.aoserv.client.mysql.Server chooseMysqlServer(
+      Predicate<? super com.aoindustries.aoserv.client.mysql.Server> filter
+  ) throws IOException, SQLException, InterruptedException {
+    return snapshot.get().mysql.choose(filter);
+  }
+
+  /**
+   * Chooses the least-loaded PostgreSQL server.
+   *
+   * @param  filter  limits the candidates, such as by version or host
+   *
+   * @return  the server or <code>null</code> when no candidate matches the filter
+   */
+  public com.aoindustries.aoserv.client.postgresql.Server choosePostgresServer(
+      Predicate<? super com.aoindustries.aoserv.client.postgresql.Server> filter
+  ) throws IOException, SQLException, InterruptedException {
+    return snapshot.get().postgres.choose(filter);
+  }
+
+  /**
+   * Adds a <code>Database</code> to the least-loaded MySQL server.
+   *
+   * @param  name         the name of the database to add
+   * @param  packageName  the name of the <code>Package</code> that owns the new database
+   * @param  filter       limits the candidates, such as by version or host
+   *
+   * @return  the new <code>Database</code>
+   *
+   * @see  AddMysqlDatabase#addMysqlDatabase(com.aoindustries.aoserv.client.AoservConnector, com.aoindustries.aoserv.client.mysql.Database.Name,
+   *       com.aoindustries.aoserv.client.mysql.Server.Name, com.aoapps.net.DomainName, com.aoindustries.aoserv.client.account.Account.Name)
+   */
+  public com.aoindustries.aoserv.client.mysql.Database addMysqlDatabase(
+      com.aoindustries.aoserv.client.mysql.Database.Name name,
+      Account.Name packageName,
+      Predicate<? super com.aoindustries.aoserv.client.mysql.Server> filter
+  ) throws IOException, SQLException, InterruptedException {
+    Candidates<com.aoindustries.aoserv.client.mysql.Server> candidates = snapshot.get().mysql;
+    com.aoindustries.aoserv.client.mysql.Server ms = candidates.choose(filter);
+    if (ms == null) {
+      throw new SQLException("No MySQL Server available for Database: " + name);
+    }
+    try {
+      return AddMysqlDatabase.addMysqlDatabase(conn, name, ms.getName(), ms.getLinuxServer().getHostname(), packageName);
+    } catch (IOException | SQLException | RuntimeException e) {
+      // Make the server available to the next choice, unless the database was added anyway
+      release(candidates, ms, e, () -> ms.getMysqlDatabase(name) != null);
+      throw e;
+    }
+  }
+
+  /**
+   * Adds a <code>Database</code> to the least-loaded PostgreSQL server where the
+   * database administrator has access.
+   *
+   * @param  name           the name of the database to add
+   * @param  datdba         the username of the database administrator <code>User</code>
+   * @param  encoding       the encoding to use
+   * @param  enablePostgis  enables PostGIS on the database
+   * @param  filter         limits the candidates, such as by version or host
+   *
+   * @return  the new <code>Database</code>
+   *
+   * @see  AddPostgresDatabase
+   */
+  public com.aoindustries.aoserv.client.postgresql.Database addPostgresDatabase(
+      com.aoindustries.aoserv.client.postgresql.Database.Name name,
+      com.aoindustries.aoserv.client.postgresql.User.Name datdba,
+      String encoding,
+      boolean enablePostgis,
+      Predicate<? super com.aoindustries.aoserv.client.postgresql.Server> filter
+  ) throws IOException, SQLException, InterruptedException {
+    // Find the servers where the datdba has access
+    com.aoindustries.aoserv.client.postgresql.User pu = conn.getPostgresql().getUser().get(datdba);
+    if (pu == null) {
+      throw new SQLException("Unable to find User: " + datdba);
+    }
+    Set<com.aoindustries.aoserv.client.postgresql.Server> datdbaServers = new HashSet<>();
+    for (com.aoindustries.aoserv.client.postgresql.UserServer psu : pu.getPostgresServerUsers()) {
+      datdbaServers.add(psu.getPostgresServer());
+    }
+    Candidates<com.aoindustries.aoserv.client.postgresql.Server> candidates = snapshot.get().postgres;
+    com.aoindustries.aoserv.client.postgresql.Server ps = candidates.choose(s -> datdbaServers.contains(s) && filter.test(s));
+    if (ps == null) {
+      throw new SQLException("No PostgreSQL Server available with datdba " + datdba + " for Database: " + name);
+    }
+    try {
+      return AddPostgresDatabase.addPostgresDatabase(conn, name, ps.getName(), ps.getLinuxServer().getHostname(), datdba, encoding, enablePostgis);
+    } catch (IOException | SQLException | RuntimeException e) {
+      // Make the server available to the next choice, unless the database was added anyway
+      release(candidates, ps, e, () -> ps.getPostgresDatabase(name) != null);
+      throw e;
+    }
+  }
+}
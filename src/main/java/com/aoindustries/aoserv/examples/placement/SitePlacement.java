@@ -0,0 +1,462 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.placement;
+
+import com.aoapps.lang.validation.ValidationException;
+import com.aoapps.net.DomainName;
+import com.aoapps.net.Email;
+import com.aoapps.net.InetAddress;
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.client.net.Host;
+import com.aoindustries.aoserv.client.net.IpAddress;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.examples.CreateAccount;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Predicate;
+
+/**
+ * Chooses the server, IP address and network device for new Tomcat sites,
+ * spreading them evenly instead of packing them onto the servers picked by
+ * each script.
+ *
+ * <p>Each server with a free IP address is a candidate, scored by its number
+ * of Tomcat sites plus a fraction of its number of Linux accounts.  The
+ * least-loaded candidate is chosen.  The counts come from an in-memory snapshot,
+ * with the sites, accounts and IP addresses tallied concurrently, that is rebuilt
+ * once it is older than the refresh interval, or periodically in the background
+ * with {@link #scheduleRefresh(java.util.concurrent.ScheduledExecutorService)}.
+ * Between refreshes, each choice is counted against its server and its IP
+ * address is no longer free, until released when its account could not be
+ * created and the IP address is still unassigned on the master.</p>
+ *
+ * <p>An optional anti-affinity account keeps sites apart: servers that already
+ * host a site of that account, or of any of its sub-accounts, are only chosen when
+ * no other candidate remains.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class SitePlacement {
+
+  /**
+   * The weight of each Linux account relative to each Tomcat site.
+   */
+  private static final double ACCOUNT_WEIGHT = 0.1;
+
+  /**
+   * The server, IP address and network device chosen for one site.
+   */
+  public static final class Placement {
+
+    private final Snapshot snapshot;
+    private final int index;
+    private final Server server;
+    private final IpAddress ipAddress;
+    private final Account.Name affinityAdded;
+
+    private Placement(Snapshot snapshot, int index, Server server, IpAddress ipAddress, Account.Name affinityAdded) {
+      this.snapshot = snapshot;
+      this.index = index;
+      this.server = server;
+      this.ipAddress = ipAddress;
+      this.affinityAdded = affinityAdded;
+    }
+
+    @Override
+    public String toString() {
+      return server + ": " + ipAddress;
+    }
+
+    /**
+     * Gets the server for the site.
+     */
+    public Server getServer() {
+      return server;
+    }
+
+    /**
+     * Gets the free IP address for the site.
+     */
+    public IpAddress getIpAddress() {
+      return ipAddress;
+    }
+
+    /**
+     * Gets the network device of the IP address.
+     */
+    public String getNetDevice() {
+      return ipAddress.getDevice().getDeviceId().getName();
+    }
+  }
+
+  /**
+   * The rows of one resource, tallied by server.  Each resource fills in only
+   * its own part.
+   */
+  private static final class Tally {
+
+    /**
+     * The number of rows per server.
+     */
+    private final Map<Server, int[]> counts = new HashMap<>();
+
+    /**
+     * The free IP addresses per server.
+     */
+    private final Map<Server, ArrayDeque<IpAddress>> freeIpAddresses = new HashMap<>();
+
+    /**
+     * The servers hosting a site of each account or its sub-accounts.
+     */
+    private final Map<Account.Name, Set<Server>> accountServers = new HashMap<>();
+
+    private void count(Server server) {
+      counts.computeIfAbsent(server, s -> new int[1])[0]++;
+    }
+
+    private int getCount(Server server) {
+      int[] count = counts.get(server);
+      return count == null ? 0 : count[0];
+    }
+  }
+
+  /**
+   * The resources tallied per server for each snapshot.
+   */
+  private enum Resource {
+    TOMCAT_SITES {
+      @Override
+      Tally tally(AoservConnector conn) throws IOException, SQLException {
+        Tally tally = new Tally();
+        for (Site site : conn.getWeb().getSite().getRows()) {
+          com.aoindustries.aoserv.client.web.tomcat.Site tomcatSite = site.getHttpdTomcatSite();
+          if (tomcatSite != null && tomcatSite.getHttpdTomcatStdSite() != null) {
+            Server server = site.getLinuxServer();
+            tally.count(server);
+            // Index the servers of each account and its parents, for anti-affinity
+            for (
+                Account account = site.getPackage().getAccount();
+                account != null;
+                account = account.getParent()
+            ) {
+              tally.accountServers.computeIfAbsent(account.getName(), a -> new HashSet<>()).add(server);
+            }
+          }
+        }
+        return tally;
+      }
+    },
+    LINUX_ACCOUNTS {
+      @Override
+      Tally tally(AoservConnector conn) throws IOException, SQLException {
+        Tally tally = new Tally();
+        for (UserServer lsa : conn.getLinux().getUserServer().getRows()) {
+          tally.count(lsa.getServer());
+        }
+        return tally;
+      }
+    },
+    FREE_IP_ADDRESSES {
+      @Override
+      Tally tally(AoservConnector conn) throws IOException, SQLException {
+        Tally tally = new Tally();
+        for (IpAddress ip : conn.getNet().getIpAddress().getRows()) {
+          if (ip.isAvailable() && ip.getDevice() != null) {
+            InetAddress inetAddress = ip.getInetAddress();
+            if (!inetAddress.isUnspecified() && !inetAddress.isLoopback()) {
+              Host host = ip.getDevice().getHost();
+              Server linuxServer = host.getLinuxServer();
+              if (linuxServer != null) {
+                tally.freeIpAddresses.computeIfAbsent(linuxServer, s -> new ArrayDeque<>()).add(ip);
+              }
+            }
+          }
+        }
+        return tally;
+      }
+    };
+
+    /**
+     * Reads the rows of this resource and tallies them by server.
+     */
+    abstract Tally tally(AoservConnector conn) throws IOException, SQLException;
+  }
+
+  private static final class Snapshot {
+
+    private final List<Server> servers;
+    private final double[] scores;
+    private final int[] placed;
+    private final List<ArrayDeque<IpAddress>> freeIpAddresses;
+    private final Map<Account.Name, Set<Server>> accountServers;
+
+    private Snapshot(AoservConnector conn, Executor executor) throws IOException, SQLException, InterruptedException {
+      // Read and tally each resource concurrently
+      Map<Resource, Tally> tallies = new EnumMap<>(Resource.class);
+      for (Map.Entry<Resource, Outcome<Tally>> entry : FanOut.run(
+          executor,
+          EnumSet.allOf(Resource.class),
+          resource -> resource.tally(conn)
+      ).entrySet()) {
+        tallies.put(entry.getKey(), entry.getValue().get());
+      }
+      Tally sites = tallies.get(Resource.TOMCAT_SITES);
+      Tally accounts = tallies.get(Resource.LINUX_ACCOUNTS);
+      Tally ips = tallies.get(Resource.FREE_IP_ADDRESSES);
+
+      // Score the servers with a free IP address
+      servers = new ArrayList<>(ips.freeIpAddresses.keySet());
+      int size = servers.size();
+      scores = new double[size];
+      placed = new int[size];
+      freeIpAddresses = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        Server server = servers.get(i);
+        scores[i] = sites.getCount(server) + accounts.getCount(server) * ACCOUNT_WEIGHT;
+        freeIpAddresses.add(ips.freeIpAddresses.get(server));
+      }
+      accountServers = sites.accountServers;
+    }
+
+    private synchronized Placement choose(Account.Name antiAffinity, Predicate<? super Server> filter) {
+      Set<Server> avoid = antiAffinity == null ? null : accountServers.get(antiAffinity);
+      int best = -1;
+      boolean bestAvoided = true;
+      double bestScore = Double.MAX_VALUE;
+      for (int i = 0, size = servers.size(); i < size; i++) {
+        if (!freeIpAddresses.get(i).isEmpty()) {
+          Server server = servers.get(i);
+          boolean avoided = avoid != null && avoid.contains(server);
+          double score = scores[i] + placed[i];
+          if (
+              ((bestAvoided && !avoided) || (bestAvoided == avoided && score < bestScore))
+                  && filter.test(server)
+          ) {
+            best = i;
+            bestAvoided = avoided;
+            bestScore = score;
+          }
+        }
+      }
+      if (best == -1) {
+        return null;
+      }
+      placed[best]++;
+      Server server = servers.get(best);
+      Account.Name affinityAdded = null;
+      if (
+          antiAffinity != null
+              && accountServers.computeIfAbsent(antiAffinity, a -> new HashSet<>()).add(server)
+      ) {
+        affinityAdded = antiAffinity;
+      }
+      return new Placement(this, best, server, freeIpAddresses.get(best).remove(), affinityAdded);
+    }
+
+    /**
+     * Undoes a choice whose account could not be created, returning its IP
+     * address to the front of the free addresses of its server.
+     */
+    private synchronized void release(Placement placement) {
+      placed[placement.index]--;
+      freeIpAddresses.get(placement.index).addFirst(placement.ipAddress);
+      if (placement.affinityAdded != null) {
+        accountServers.get(placement.affinityAdded).remove(placement.server);
+      }
+    }
+  }
+
+  private final AoservConnector conn;
+  private final SnapshotCache<Snapshot> snapshot;
+
+  /**
+   * Releases a placement after its account could not be created, but only when
+   * its IP address, re-read from the master, is still unassigned.  The account
+   * may have been partly created, or created with only the response lost, in
+   * which case the placement stays consumed.  When the re-read itself fails, the
+   * placement is kept and the failure is added to the original error.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void release(Placement placement, Throwable error) {
+    try {
+      IpAddress ip = conn.getNet().getIpAddress().get(placement.ipAddress.getPkey());
+      if (ip != null && ip.isAvailable()) {
+        placement.snapshot.release(placement);
+      }
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      error.addSuppressed(t);
+    }
+  }
+
+  /**
+   * Creates a new placement engine.
+   *
+   * @param  conn           the <code>AoservConnector</code> to use
+   * @param  executor       the executor that tallies the resources of each snapshot
+   * @param  refreshMillis  the age after which the snapshot is rebuilt
+   */
+  public SitePlacement(AoservConnector conn, Executor executor, long refreshMillis) {
+    this.conn = conn;
+    this.snapshot = new SnapshotCache<>(() -> new Snapshot(conn, executor), refreshMillis);
+  }
+
+  /**
+   * Rebuilds the snapshot now.
+   */
+  public void refresh() throws IOException, SQLException, InterruptedException {
+    snapshot.refresh();
+  }
+
+  /**
+   * Rebuilds the snapshot in the background once per refresh interval, so that
+   * choices never wait on a rebuild.
+   *
+   * @return  the future that cancels the periodic refresh
+   */
+  public ScheduledFuture<?> scheduleRefresh(ScheduledExecutorService scheduler) {
+    return snapshot.schedule(scheduler);
+  }
+
+  /**
+   * Chooses the least-loaded server with a free IP address.
+   *
+   * @param  antiAffinity  if provided, servers hosting a site of this account or its sub-accounts
+   *                       are only chosen when no other candidate matches the filter
+   * @param  filter        limits the candidates, such as by operating system or location
+   *
+   * @return  the placement or <code>null</code> when no candidate matches the filter
+   */
+  public Placement choose(Account.Name antiAffinity, Predicate<? super Server> filter)
+      throws IOException, SQLException, InterruptedException {
+    return snapshot.get().choose(antiAffinity, filter);
+  }
+
+  /**
+   * Creates an account on the least-loaded server, with the site on a free IP address
+   * that is assigned to the new <code>Package</code>.
+   *
+   * @param  listener      if provided, receives progress events during account creation
+   * @param  strength      if provided, the required strength of the passwords, checked before anything is created
+   * @param  antiAffinity  if provided, servers hosting a site of this account or its sub-accounts
+   *                       are only chosen when no other candidate matches the filter
+   * @param  filter        limits the candidates, such as by operating system or location
+   *
+   * @return  the placement of the new account, which is released for the next choice when
+   *          the account cannot be created and its IP address is still unassigned
+   *
+   * @see  CreateAccount#createAccount(com.aoindustries.aoserv.client.AoservConnector, com.aoindustries.aoserv.examples.progress.ProgressListener,
+   *       com.aoapps.security.PasswordChecker.PasswordStrength, com.aoindustries.aoserv.client.account.Account.Name, java.lang.String, com.aoindustries.aoserv.client.account.Account.Name,
+   *       java.lang.String, java.lang.String, java.lang.String, com.aoindustries.aoserv.client.linux.User.Name, java.lang.String,
+   *       com.aoindustries.aoserv.client.linux.User.Name, java.lang.String, com.aoindustries.aoserv.client.linux.Group.Name, java.lang.String,
+   *       com.aoindustries.aoserv.client.mysql.User.Name, com.aoindustries.aoserv.client.mysql.User.Name, java.lang.String,
+   *       com.aoapps.net.InetAddress, java.lang.String, boolean, com.aoapps.net.Email, com.aoapps.net.DomainName,
+   *       com.aoapps.net.DomainName[], java.lang.String)
+   */
+  public Placement createAccount(
+      ProgressListener listener,
+      PasswordChecker.PasswordStrength strength,
+      Account.Name antiAffinity,
+      Predicate<? super Server> filter,
+      Account.Name accountingTemplate,
+      Account.Name parentAccount,
+      String packageDefinitionCategory,
+      String packageDefinitionName,
+      String packageDefinitionVersion,
+      User.Name jvmUsername,
+      String jvmPassword,
+      User.Name ftpUsername,
+      String ftpPassword,
+      Group.Name groupName,
+      String siteNameTemplate,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAdminUsername,
+      com.aoindustries.aoserv.client.mysql.User.Name mysqlAppUsername,
+      String mysqlAppPassword,
+      Email serverAdmin,
+      DomainName primaryHttpHostname,
+      DomainName[] altHttpHostnames,
+      String tomcatVersion
+  ) throws IOException, SQLException, ValidationException, InterruptedException {
+    Placement placement = choose(antiAffinity, filter);
+    if (placement == null) {
+      throw new SQLException("No Server with a free IpAddress available for Account: " + accountingTemplate);
+    }
+    try {
+      CreateAccount.createAccount(
+          conn,
+          listener,
+          strength,
+          accountingTemplate,
+          placement.getServer().getHostname().toString(),
+          parentAccount,
+          packageDefinitionCategory,
+          packageDefinitionName,
+          packageDefinitionVersion,
+          jvmUsername,
+          jvmPassword,
+          ftpUsername,
+          ftpPassword,
+          groupName,
+          siteNameTemplate,
+          mysqlAdminUsername,
+          mysqlAppUsername,
+          mysqlAppPassword,
+          placement.getIpAddress().getInetAddress(),
+          placement.getNetDevice(),
+          true,
+          serverAdmin,
+          primaryHttpHostname,
+          altHttpHostnames,
+          tomcatVersion
+      );
+    } catch (IOException | SQLException | ValidationException | RuntimeException e) {
+      // Make the server and IP address available to the next choice, unless the IP address was assigned anyway
+      release(placement, e);
+      throw e;
+    }
+    return placement;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.placement;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the latest snapshot of a placement engine.  The snapshot is rebuilt on
+ * first use and whenever it is older than the refresh interval, or may be kept
+ * fresh by a periodic background refresh so that callers never wait on one.
+ *
+ * @author  AO Industries, Inc.
+ */
+final class SnapshotCache<S> {
+
+  private static final Logger logger = Logger.getLogger(SnapshotCache.class.getName());
+
+  /**
+   * Builds a new snapshot from the current tables.
+   */
+  @FunctionalInterface
+  interface Loader<S> {
+    S load() throws IOException, SQLException, InterruptedException;
+  }
+
+  private static final class Entry<S> {
+
+    private final S snapshot;
+    private final long createdNanos;
+
+    private Entry(S snapshot, long createdNanos) {
+      this.snapshot = snapshot;
+      this.createdNanos = createdNanos;
+    }
+  }
+
+  private final Loader<? extends S> loader;
+  private final long refreshNanos;
+  private final Object lock = new Object();
+  private volatile Entry<S> current;
+
+  SnapshotCache(Loader<? extends S> loader, long refreshMillis) {
+    this.loader = loader;
+    this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+  }
+
+  private boolean isStale(Entry<S> entry) {
+    return entry == null || (System.nanoTime() - entry.createdNanos) >= refreshNanos;
+  }
+
+  /**
+   * Gets the current snapshot, rebuilding it first when missing or stale.
+   */
+  S get() throws IOException, SQLException, InterruptedException {
+    Entry<S> entry = current;
+    if (isStale(entry)) {
+      synchronized (lock) {
+        entry = current;
+        if (isStale(entry)) {
+          long createdNanos = System.nanoTime();
+          current = entry = new Entry<>(loader.load(), createdNanos);
+        }
+      }
+    }
+    return entry.snapshot;
+  }
+
+  /**
+   * Rebuilds the snapshot now.
+   */
+  void refresh() throws IOException, SQLException, InterruptedException {
+    long createdNanos = System.nanoTime();
+    Entry<S> entry = new Entry<>(loader.load(), createdNanos);
+    synchronized (lock) {
+      current = entry;
+    }
+  }
+
+  /**
+   * Rebuilds the snapshot in the background once per refresh interval.
+   * Failures are logged and the previous snapshot is kept until the next
+   * attempt.
+   *
+   * @return  the future that cancels the periodic refresh
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  ScheduledFuture<?> schedule(ScheduledExecutorService scheduler) {
+    return scheduler.scheduleWithFixedDelay(
+        () -> {
+          try {
+            refresh();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (ThreadDeath td) {
+            throw td;
+          } catch (Throwable t) {
+            logger.log(Level.WARNING, "Unable to refresh snapshot", t);
+          }
+        },
+        0,
+        refreshNanos,
+        TimeUnit.NANOSECONDS
+    );
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2017, 2018, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -31,6 +31,7 @@ import com.aoindustries.aoserv.client.postgresql.Encoding;
 import com.aoindustries.aoserv.client.postgresql.Server;
 import com.aoindustries.aoserv.client.postgresql.User;
 import com.aoindustries.aoserv.client.postgresql.UserServer;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
 
@@ -97,23 +98,28 @@ public final class AddPostgresDatabase {
       String encoding,
       boolean enablePostgis
   ) throws IOException, SQLException {
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Resolve the Host
+      com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(server);
 
-    // Resolve the Host
-    com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(server);
+      // Resolve the Server
+      Server ps = ao.getPostgresServer(postgresServer);
 
-    // Resolve the Server
-    Server ps = ao.getPostgresServer(postgresServer);
+      // Resolve the datdba UserServer
+      UserServer psu = ps.getPostgresServerUser(datdba);
 
-    // Resolve the datdba UserServer
-    UserServer psu = ps.getPostgresServerUser(datdba);
+      // Resolve the Encoding
+      Encoding pe = ps.getVersion().getPostgresEncoding(conn, encoding);
 
-    // Resolve the Encoding
-    Encoding pe = ps.getVersion().getPostgresEncoding(conn, encoding);
+      // Add the Database
+      int pdId = ps.addPostgresDatabase(name, psu, pe, enablePostgis);
 
-    // Add the Database
-    int pdId = ps.addPostgresDatabase(name, psu, pe, enablePostgis);
-
-    // Return the object
-    return conn.getPostgresql().getDatabase().get(pdId);
+      // Return the object
+      return conn.getPostgresql().getDatabase().get(pdId);
+    } finally {
+      event.end("AddPostgresDatabase.addPostgresDatabase", name);
+    }
   }
 }
@@ -0,0 +1,258 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.postgres;
+
+import com.aoapps.net.DomainName;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.postgresql.Database;
+import com.aoindustries.aoserv.client.postgresql.Encoding;
+import com.aoindustries.aoserv.client.postgresql.Server;
+import com.aoindustries.aoserv.client.postgresql.User;
+import com.aoindustries.aoserv.client.postgresql.UserServer;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Adds many <code>Database</code> at once, such as during a tenant migration.
+ *
+ * <p>The server, datdba <code>UserServer</code>, and <code>Encoding</code> are
+ * resolved once per distinct (server, datdba) and (version, encoding), instead
+ * of once per database.  The additions are then performed concurrently.  Since
+ * enabling PostGIS is expensive, databases with PostGIS are added from a separate
+ * queue with its own, smaller, concurrency limit.</p>
+ *
+ * @see  AddPostgresDatabase
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AddPostgresDatabases {
+
+  /** Make no instances. */
+  private AddPostgresDatabases() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The specification for one new database.
+   */
+  public static final class Spec {
+
+    private final Database.Name name;
+    private final Server.Name postgresServer;
+    private final DomainName server;
+    private final User.Name datdba;
+    private final String encoding;
+    private final boolean enablePostgis;
+
+    /**
+     * Specifies one new database.
+     *
+     * @param  name            the name of the database to add
+     * @param  postgresServer  the name of the PostgreSQL server
+     * @param  server          the hostname of the server to add the database to
+     * @param  datdba          the username of the database administrator <code>User</code>
+     * @param  encoding        the encoding to use
+     * @param  enablePostgis   enables PostGIS on the database
+     */
+    public Spec(
+        Database.Name name,
+        Server.Name postgresServer,
+        DomainName server,
+        User.Name datdba,
+        String encoding,
+        boolean enablePostgis
+    ) {
+      this.name = name;
+      this.postgresServer = postgresServer;
+      this.server = server;
+      this.datdba = datdba;
+      this.encoding = encoding;
+      this.enablePostgis = enablePostgis;
+    }
+
+    @Override
+    public String toString() {
+      return name + " on " + postgresServer + '@' + server;
+    }
+  }
+
+  /**
+   * A specification with its server, datdba, and encoding resolved.
+   */
+  private static final class Resolved {
+
+    private final Spec spec;
+    private final Server ps;
+    private final UserServer psu;
+    private final Encoding pe;
+    private final CompletableFuture<Outcome<Database>> future = new CompletableFuture<>();
+
+    private Resolved(Spec spec, Server ps, UserServer psu, Encoding pe) {
+      this.spec = spec;
+      this.ps = ps;
+      this.psu = psu;
+      this.pe = pe;
+    }
+  }
+
+  /**
+   * Memoizes resolutions, used from a single thread.
+   */
+  private static final class Resolver {
+
+    private final AoservConnector conn;
+    private final Map<List<Object>, Server> servers = new HashMap<>();
+    private final Map<List<Object>, UserServer> datdbas = new HashMap<>();
+    private final Map<List<Object>, Encoding> encodings = new HashMap<>();
+
+    private Resolver(AoservConnector conn) {
+      this.conn = conn;
+    }
+
+    private Resolved resolve(Spec spec) throws IOException, SQLException {
+      // Resolve the Server
+      List<Object> serverKey = List.of(spec.server, spec.postgresServer);
+      Server ps = servers.get(serverKey);
+      if (ps == null) {
+        com.aoindustries.aoserv.client.linux.Server ao = conn.getLinux().getServer().get(spec.server);
+        if (ao == null) {
+          throw new SQLException("Unable to find Server: " + spec.server);
+        }
+        ps = ao.getPostgresServer(spec.postgresServer);
+        if (ps == null) {
+          throw new SQLException("Unable to find PostgreSQL Server: " + spec.postgresServer + " on " + spec.server);
+        }
+        servers.put(serverKey, ps);
+      }
+
+      // Resolve the datdba UserServer
+      List<Object> datdbaKey = List.of(ps, spec.datdba);
+      UserServer psu = datdbas.get(datdbaKey);
+      if (psu == null) {
+        psu = ps.getPostgresServerUser(spec.datdba);
+        if (psu == null) {
+          throw new SQLException("Unable to find UserServer: " + spec.datdba + " on " + spec.postgresServer + '@' + spec.server);
+        }
+        datdbas.put(datdbaKey, psu);
+      }
+
+      // Resolve the Encoding
+      List<Object> encodingKey = List.of(ps.getVersion(), spec.encoding);
+      Encoding pe = encodings.get(encodingKey);
+      if (pe == null) {
+        pe = ps.getVersion().getPostgresEncoding(conn, spec.encoding);
+        if (pe == null) {
+          throw new SQLException("Unable to find Encoding: " + spec.encoding + " for " + ps.getVersion());
+        }
+        encodings.put(encodingKey, pe);
+      }
+      return new Resolved(spec, ps, psu, pe);
+    }
+  }
+
+  /**
+   * Adds the <code>Database</code>.
+   *
+   * @param  conn                the <code>AoservConnector</code> to use
+   * @param  executor            the executor that performs the additions
+   * @param  specs               the databases to add
+   * @param  postgisConcurrency  the maximum number of databases with PostGIS added at once
+   *
+   * @return  the new <code>Database</code> or the failure for each specification, in iteration order
+   */
+  public static Map<Spec, Outcome<Database>> addPostgresDatabases(
+      AoservConnector conn,
+      Executor executor,
+      Iterable<Spec> specs,
+      int postgisConcurrency
+  ) throws InterruptedException {
+    if (postgisConcurrency < 1) {
+      throw new IllegalArgumentException("postgisConcurrency < 1: " + postgisConcurrency);
+    }
+    FanOut.Task<Resolved, Database> add = resolved -> {
+      int pdId = resolved.ps.addPostgresDatabase(resolved.spec.name, resolved.psu, resolved.pe, resolved.spec.enablePostgis);
+      return conn.getPostgresql().getDatabase().get(pdId);
+    };
+
+    // Resolve and submit
+    Resolver resolver = new Resolver(conn);
+    Map<Spec, CompletableFuture<Outcome<Database>>> futures = new LinkedHashMap<>();
+    Queue<Resolved> postgis = new ArrayDeque<>();
+    for (Spec spec : specs) {
+      Resolved resolved;
+      try {
+        resolved = resolver.resolve(spec);
+      } catch (IOException | SQLException e) {
+        futures.put(spec, CompletableFuture.completedFuture(Outcome.failure(e, 0)));
+        continue;
+      }
+      futures.put(spec, resolved.future);
+      if (spec.enablePostgis) {
+        postgis.add(resolved);
+      } else {
+        CompletableFuture.runAsync(() -> resolved.future.complete(FanOut.call(add, resolved)), executor);
+      }
+    }
+
+    // Each PostGIS worker adds one database at a time until the queue is empty
+    for (int i = Math.min(postgisConcurrency, postgis.size()); i > 0; i--) {
+      executor.execute(() -> {
+        while (true) {
+          Resolved resolved;
+          synchronized (postgis) {
+            resolved = postgis.poll();
+          }
+          if (resolved == null) {
+            break;
+          }
+          resolved.future.complete(FanOut.call(add, resolved));
+        }
+      });
+    }
+
+    // Collect the results
+    Map<Spec, Outcome<Database>> outcomes = new LinkedHashMap<>(futures.size() * 4 / 3 + 1);
+    for (Map.Entry<Spec, CompletableFuture<Outcome<Database>>> entry : futures.entrySet()) {
+      Outcome<Database> outcome;
+      try {
+        outcome = entry.getValue().get();
+      } catch (ExecutionException e) {
+        outcome = Outcome.failure(e.getCause(), 0);
+      }
+      outcomes.put(entry.getKey(), outcome);
+    }
+    return outcomes;
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2001-2013, 2017, 2018, 2019, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2017, 2018, 2019, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,6 +23,8 @@
 
 package com.aoindustries.aoserv.examples.postgres;
 
+import com.aoapps.net.DomainName;
+import com.aoapps.security.PasswordChecker;
 import com.aoindustries.aoserv.client.AoservConnector;
 import com.aoindustries.aoserv.client.SimpleAoservClient;
 import com.aoindustries.aoserv.client.account.Account;
@@ -30,8 +32,21 @@ import com.aoindustries.aoserv.client.billing.Package;
 import com.aoindustries.aoserv.client.postgresql.Server;
 import com.aoindustries.aoserv.client.postgresql.User;
 import com.aoindustries.aoserv.client.postgresql.UserServer;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FairScheduler;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.jfr.HelperCallEvent;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Adds a <code>User</code> to the system.
@@ -45,6 +60,21 @@ public final class AddPostgresUser {
     throw new AssertionError();
   }
 
+  /**
+   * The tables used when provisioning through an <code>AoservConnector</code>,
+   * loaded concurrently once as each fan-out or asynchronous workflow starts.
+   * A single call does not warm up on its own, since a caller making many
+   * calls should warm up once, before the first.
+   */
+  public static final Set<TableWarmup.Table> TABLES = Collections.unmodifiableSet(EnumSet.of(
+      TableWarmup.Table.USERNAME,
+      TableWarmup.Table.PACKAGE,
+      TableWarmup.Table.HOST,
+      TableWarmup.Table.LINUX_SERVER,
+      TableWarmup.Table.POSTGRES_SERVER,
+      TableWarmup.Table.POSTGRES_USER
+  ));
+
   /**
    * Adds a <code>User</code> to the system.
    *
@@ -73,7 +103,7 @@ public final class AddPostgresUser {
     aoClient.addPostgresServerUser(username, postgresServer, server);
 
     // Commit the changes before setting the password
-    aoClient.waitForPostgresUserRebuild(server);
+    RebuildNotifier.Type.POSTGRES_USER.waitFor(aoClient, server);
 
     // Set the password
     aoClient.setPostgresServerUserPassword(username, postgresServer, server, password);
@@ -98,6 +128,178 @@ public final class AddPostgresUser {
       Server.Name postgresServer,
       String server,
       String password
+  ) throws IOException, SQLException {
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      User pu = addUsername(conn, packageName, username);
+
+      // Resolve the Host
+      com.aoindustries.aoserv.client.linux.Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+
+      UserServer psu = addPostgresServerUser(conn, pu, linuxServer, postgresServer);
+
+      // Commit the changes before setting the password
+      RebuildNotifier.Type.POSTGRES_USER.waitFor(linuxServer);
+
+      // Set the password
+      psu.setPassword(password);
+
+      // Return the object
+      return psu;
+    } finally {
+      event.end("AddPostgresUser.addPostgresUser", username);
+    }
+  }
+
+  /**
+   * Adds a <code>User</code> to many servers at once.  The account-level steps
+   * are performed once, then each server is granted access, is rebuilt, and has
+   * its password set concurrently.
+   *
+   * @param  conn            the <code>AoservConnector</code> to use
+   * @param  executor        the executor that performs the per-server steps
+   * @param  packageName     the name of the <code>Package</code>
+   * @param  username        the new username to allocate
+   * @param  postgresServer  the name of the PostgreSQL server, which must exist on every server
+   * @param  servers         the hostnames of the servers to add the account to
+   * @param  password        the password for the new account
+   * @param  strength        the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   */
+  public static Map<DomainName, Outcome<UserServer>> addPostgresUser(
+      AoservConnector conn,
+      Executor executor,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name postgresServer,
+      Set<DomainName> servers,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User pu = addUsername(conn, packageName, username);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(executor, servers, server -> addToServer(conn, pu, postgresServer, server, password));
+    } finally {
+      event.end("AddPostgresUser.addPostgresUser", username);
+    }
+  }
+
+  /**
+   * Same as the executor variant, with the per-server steps run through a
+   * scheduler that serves servers fairly and limits the load on the master.
+   *
+   * @param  conn            the <code>AoservConnector</code> to use
+   * @param  scheduler       the scheduler that performs the per-server steps
+   * @param  packageName     the name of the <code>Package</code>
+   * @param  username        the new username to allocate
+   * @param  postgresServer  the name of the PostgreSQL server, which must exist on every server
+   * @param  servers         the hostnames of the servers to add the account to
+   * @param  password        the password for the new account
+   * @param  strength        the required strength of the password, checked before anything is created
+   *
+   * @return  the new <code>UserServer</code> or the failure for each server
+   *
+   * @see  FanOut#run(com.aoindustries.aoserv.examples.concurrent.FairScheduler, java.lang.Iterable, com.aoindustries.aoserv.examples.concurrent.FanOut.Task)
+   */
+  public static Map<DomainName, Outcome<UserServer>> addPostgresUser(
+      AoservConnector conn,
+      FairScheduler<DomainName> scheduler,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name postgresServer,
+      Set<DomainName> servers,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException, InterruptedException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User pu = addUsername(conn, packageName, username);
+
+      // Grant access, wait for rebuild, and set the password on each server concurrently
+      return FanOut.run(scheduler, servers, server -> addToServer(conn, pu, postgresServer, server, password));
+    } finally {
+      event.end("AddPostgresUser.addPostgresUser", username);
+    }
+  }
+
+  /**
+   * Adds a <code>User</code> to the system without blocking for the rebuild.
+   * The password is set once the PostgreSQL user rebuild completes.
+   *
+   * @param  conn            the <code>AoservConnector</code> to use
+   * @param  notifier        the notifier that signals rebuild completion
+   * @param  packageName     the name of the <code>Package</code>
+   * @param  username        the new username to allocate
+   * @param  postgresServer  the name of the PostgreSQL server
+   * @param  server          the hostname of the server to add the account to
+   * @param  password        the password for the new account
+   * @param  strength        the required strength of the password, checked before anything is created
+   *
+   * @return  the future that completes with the new <code>UserServer</code> once its password is set
+   */
+  public static CompletableFuture<UserServer> addPostgresUserAsync(
+      AoservConnector conn,
+      RebuildNotifier notifier,
+      Account.Name packageName,
+      User.Name username,
+      Server.Name postgresServer,
+      String server,
+      String password,
+      PasswordChecker.PasswordStrength strength
+  ) throws IOException, SQLException {
+    // Check the password before creating anything
+    PasswordBatch.requireStrong(username, password, strength);
+
+    HelperCallEvent event = new HelperCallEvent();
+    event.begin();
+    try {
+      // Load the tables concurrently instead of on demand, once for the workflow
+      TableWarmup.warmup(conn, TABLES);
+
+      User pu = addUsername(conn, packageName, username);
+
+      // Resolve the Host
+      com.aoindustries.aoserv.client.linux.Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+
+      UserServer psu = addPostgresServerUser(conn, pu, linuxServer, postgresServer);
+
+      // Set the password after rebuild
+      return notifier.afterRebuild(linuxServer, RebuildNotifier.Type.POSTGRES_USER, () -> {
+        psu.setPassword(password);
+        return psu;
+      }).whenComplete((value, t) -> event.end("AddPostgresUser.addPostgresUserAsync", username));
+    } catch (IOException | SQLException | RuntimeException e) {
+      event.end("AddPostgresUser.addPostgresUserAsync", username);
+      throw e;
+    }
+  }
+
+  /**
+   * Reserves the username for PostgreSQL, performed once no matter how many servers.
+   */
+  private static User addUsername(
+      AoservConnector conn,
+      Account.Name packageName,
+      User.Name username
   ) throws IOException, SQLException {
     // Find the Package
     Package pk = conn.getBilling().getPackage().get(packageName);
@@ -108,25 +310,53 @@ public final class AddPostgresUser {
 
     // Indicate the username will be used for PostgreSQL accounts
     un.addPostgresUser();
-    User pu = un.getPostgresUser();
-
-    // Resolve the Host
-    com.aoindustries.aoserv.client.linux.Server linuxServer = conn.getNet().getHost().get(server).getLinuxServer();
+    return un.getPostgresUser();
+  }
 
+  /**
+   * Grants the user access to the PostgreSQL server on one host, the step performed before the rebuild.
+   */
+  private static UserServer addPostgresServerUser(
+      AoservConnector conn,
+      User pu,
+      com.aoindustries.aoserv.client.linux.Server linuxServer,
+      Server.Name postgresServer
+  ) throws IOException, SQLException {
     // Resolve the Server
     Server ps = linuxServer.getPostgresServer(postgresServer);
+    if (ps == null) {
+      throw new SQLException("Unable to find PostgreSQL Server: " + postgresServer + " on " + linuxServer);
+    }
 
     // Grant access to the server
     int psuId = pu.addPostgresServerUser(ps);
-    UserServer psu = conn.getPostgresql().getUserServer().get(psuId);
+    return conn.getPostgresql().getUserServer().get(psuId);
+  }
+
+  /**
+   * Performs the per-server steps of a PostgreSQL user, through to setting its password.
+   */
+  private static UserServer addToServer(
+      AoservConnector conn,
+      User pu,
+      Server.Name postgresServer,
+      DomainName server,
+      String password
+  ) throws IOException, SQLException {
+    // Resolve the Host
+    com.aoindustries.aoserv.client.linux.Server linuxServer = conn.getLinux().getServer().get(server);
+    if (linuxServer == null) {
+      throw new SQLException("Unable to find Server: " + server);
+    }
+
+    UserServer psu = addPostgresServerUser(conn, pu, linuxServer, postgresServer);
 
     // Commit the changes before setting the password
-    linuxServer.waitForPostgresUserRebuild();
+    RebuildNotifier.Type.POSTGRES_USER.waitFor(linuxServer);
 
     // Set the password
     psu.setPassword(password);
 
-    // Return the object
     return psu;
   }
 }
@@ -0,0 +1,247 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.postgres;
+
+import com.aoapps.security.PasswordChecker;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import com.aoindustries.aoserv.client.postgresql.Server;
+import com.aoindustries.aoserv.client.postgresql.User;
+import com.aoindustries.aoserv.client.postgresql.UserServer;
+import com.aoindustries.aoserv.examples.PasswordBatch;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Adds many <code>User</code> to the system at once, such as when onboarding a team.
+ *
+ * <p>The username, PostgreSQL user, and server user stages are pipelined across
+ * all users.  Once every server user has been added, each server is waited on
+ * once for its rebuild, instead of once per user, and then all passwords are
+ * set concurrently.</p>
+ *
+ * @see  AddPostgresUser
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AddPostgresUsers {
+
+  /** Make no instances. */
+  private AddPostgresUsers() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The specification for one new user on one server.  The same username may be
+   * given for multiple servers, in which case it is only reserved once.
+   */
+  public static final class Spec {
+
+    private final Account.Name packageName;
+    private final User.Name username;
+    private final Server.Name postgresServer;
+    private final String server;
+    private final String password;
+
+    /**
+     * Specifies one new user.
+     *
+     * @param  packageName     the name of the <code>Package</code>
+     * @param  username        the new username to allocate
+     * @param  postgresServer  the name of the PostgreSQL server
+     * @param  server          the hostname of the server to add the account to
+     * @param  password        the password for the new account
+     */
+    public Spec(
+        Account.Name packageName,
+        User.Name username,
+        Server.Name postgresServer,
+        String server,
+        String password
+    ) {
+      this.packageName = packageName;
+      this.username = username;
+      this.postgresServer = postgresServer;
+      this.server = server;
+      this.password = password;
+    }
+
+    @Override
+    public String toString() {
+      return username + " on " + postgresServer + '@' + server;
+    }
+  }
+
+  /**
+   * Adds the <code>User</code>.
+   *
+   * @param  conn      the <code>AoservConnector</code> to use
+   * @param  executor  the executor that performs the stages
+   * @param  cpuPool   the executor that performs the CPU-bound password checks
+   * @param  strength  the required strength of the passwords
+   * @param  specs     the users to add
+   *
+   * @return  the new <code>UserServer</code> or the failure for each specification, in iteration order
+   *
+   * @throws  IllegalArgumentException  when any password is weak, before anything is created
+   */
+  public static Map<Spec, Outcome<UserServer>> addPostgresUsers(
+      AoservConnector conn,
+      Executor executor,
+      Executor cpuPool,
+      PasswordChecker.PasswordStrength strength,
+      Iterable<Spec> specs
+  ) throws IOException, InterruptedException {
+    // Check all passwords before creating anything, each server's password on its own
+    Map<Spec, String> passwords = new LinkedHashMap<>();
+    for (Spec spec : specs) {
+      passwords.put(spec, spec.password);
+    }
+    PasswordBatch.requireStrong(cpuPool, passwords, spec -> spec.username, strength);
+
+    // Load the tables concurrently instead of on demand, once for all users
+    TableWarmup.warmup(conn, AddPostgresUser.TABLES);
+
+    final long startNanos = System.nanoTime();
+
+    // Pipeline the add stages
+    Map<User.Name, CompletableFuture<User>> users = new HashMap<>();
+    Map<Spec, CompletableFuture<UserServer>> added = new LinkedHashMap<>();
+    for (Spec spec : specs) {
+      CompletableFuture<User> user = users.computeIfAbsent(spec.username, username -> CompletableFuture.supplyAsync(() -> {
+        try {
+          // Reserve the username
+          Package pk = conn.getBilling().getPackage().get(spec.packageName);
+          if (pk == null) {
+            throw new SQLException("Unable to find Package: " + spec.packageName);
+          }
+          pk.addUsername(username);
+          com.aoindustries.aoserv.client.account.User un = conn.getAccount().getUser().get(username);
+
+          // Indicate the username will be used for PostgreSQL accounts
+          un.addPostgresUser();
+          return un.getPostgresUser();
+        } catch (IOException | SQLException e) {
+          throw new CompletionException(e);
+        }
+      }, executor));
+      added.put(spec, user.thenApplyAsync(pu -> {
+        try {
+          // Resolve the Host
+          com.aoindustries.aoserv.client.net.Host host = conn.getNet().getHost().get(spec.server);
+          com.aoindustries.aoserv.client.linux.Server linuxServer = host == null ? null : host.getLinuxServer();
+          if (linuxServer == null) {
+            throw new SQLException("Unable to find Server: " + spec.server);
+          }
+
+          // Resolve the Server
+          Server ps = linuxServer.getPostgresServer(spec.postgresServer);
+          if (ps == null) {
+            throw new SQLException("Unable to find PostgreSQL Server: " + spec.postgresServer + " on " + spec.server);
+          }
+
+          // Grant access to the server
+          int psuId = pu.addPostgresServerUser(ps);
+          return conn.getPostgresql().getUserServer().get(psuId);
+        } catch (IOException | SQLException e) {
+          throw new CompletionException(e);
+        }
+      }, executor));
+    }
+
+    // Wait for all add stages
+    Map<Spec, Outcome<UserServer>> outcomes = new LinkedHashMap<>(added.size() * 4 / 3 + 1);
+    Map<com.aoindustries.aoserv.client.linux.Server, List<Spec>> byServer = new LinkedHashMap<>();
+    Map<Spec, UserServer> serverUsers = new HashMap<>();
+    for (Map.Entry<Spec, CompletableFuture<UserServer>> entry : added.entrySet()) {
+      Spec spec = entry.getKey();
+      try {
+        UserServer psu = entry.getValue().get();
+        serverUsers.put(spec, psu);
+        byServer.computeIfAbsent(psu.getPostgresServer().getLinuxServer(), s -> new ArrayList<>()).add(spec);
+        outcomes.put(spec, null);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+          cause = cause.getCause();
+        }
+        outcomes.put(spec, Outcome.failure(cause, System.nanoTime() - startNanos));
+      } catch (IOException | SQLException e) {
+        outcomes.put(spec, Outcome.failure(e, System.nanoTime() - startNanos));
+      }
+    }
+
+    // Commit the changes before setting the passwords, once per server
+    List<Spec> ready = new ArrayList<>();
+    for (Map.Entry<com.aoindustries.aoserv.client.linux.Server, Outcome<Object>> entry : FanOut.run(executor, byServer.keySet(), linuxServer -> {
+      RebuildNotifier.Type.POSTGRES_USER.waitFor(linuxServer);
+      return null;
+    }).entrySet()) {
+      Outcome<Object> outcome = entry.getValue();
+      for (Spec spec : byServer.get(entry.getKey())) {
+        if (outcome.isSuccess()) {
+          ready.add(spec);
+        } else {
+          outcomes.put(spec, Outcome.failure(outcome.getError(), System.nanoTime() - startNanos));
+        }
+      }
+    }
+
+    // Set the passwords concurrently, a few at a time on each server
+    Map<Spec, String> readyPasswords = new LinkedHashMap<>();
+    for (Spec spec : ready) {
+      readyPasswords.put(spec, spec.password);
+    }
+    for (Map.Entry<Spec, Outcome<Spec>> entry : PasswordBatch.setPasswords(
+        executor,
+        readyPasswords,
+        spec -> serverUsers.get(spec).getPostgresServer().getLinuxServer(),
+        PasswordBatch.DEFAULT_MAX_PER_SERVER,
+        (spec, password) -> serverUsers.get(spec).setPassword(password)
+    ).entrySet()) {
+      Spec spec = entry.getKey();
+      outcomes.put(
+          spec,
+          entry.getValue().isSuccess()
+              ? Outcome.success(serverUsers.get(spec), System.nanoTime() - startNanos)
+              : Outcome.failure(entry.getValue().getError(), System.nanoTime() - startNanos)
+      );
+    }
+    return outcomes;
+  }
+}
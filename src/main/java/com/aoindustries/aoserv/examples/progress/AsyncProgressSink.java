@@ -0,0 +1,268 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.progress;
+
+import com.aoindustries.aoserv.examples.Json;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects progress events from any number of concurrent operations and writes
+ * them from a single background thread.  Events are written in batches with one
+ * flush per batch, so operations never wait on console output.
+ *
+ * <p>When the queue is full, reporting blocks until the writer catches up.
+ * Reporting fails instead of blocking forever once the writer thread has stopped.
+ * When a reporting thread is interrupted while waiting, the event is queued only
+ * if there is room, otherwise it is dropped and counted, and the interrupted status
+ * is restored.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AsyncProgressSink implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(AsyncProgressSink.class.getName());
+
+  /**
+   * The output formats supported.
+   */
+  public enum Format {
+    /**
+     * One line of human-readable text per event, prefixed with the source in brackets.
+     */
+    TEXT,
+
+    /**
+     * One JSON object per line.
+     */
+    JSON
+  }
+
+  private static final int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * How long to wait for space in the queue before checking that the writer thread is still running.
+   */
+  private static final long OFFER_MILLIS = 100;
+
+  private static final class Event {
+
+    private final String source;
+    private final Step step;
+    private final Object id;
+    private final long elapsedNanos;
+
+    private Event(String source, Step step, Object id, long elapsedNanos) {
+      this.source = source;
+      this.step = step;
+      this.id = id;
+      this.elapsedNanos = elapsedNanos;
+    }
+  }
+
+  /**
+   * Marks the end of the event stream.
+   */
+  private static final Event END = new Event(null, null, null, 0);
+
+  private final Writer out;
+  private final Format format;
+  private final BlockingQueue<Event> queue;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread thread;
+
+  /**
+   * Held for reading while queueing an event, and for writing while closing,
+   * so no event can be queued after the end of the stream.
+   */
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private boolean closed;
+
+  /**
+   * Creates a new sink and starts its writer thread.
+   *
+   * @param  out       the writer to send output to, which will be flushed but not closed
+   * @param  format    the output format
+   * @param  capacity  the maximum number of events queued before reporting blocks
+   */
+  public AsyncProgressSink(Writer out, Format format, int capacity) {
+    this.out = out;
+    this.format = format;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.thread = new Thread(this::writeEvents, AsyncProgressSink.class.getSimpleName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Creates a new sink with the default capacity and starts its writer thread.
+   */
+  public AsyncProgressSink(Writer out, Format format) {
+    this(out, format, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Gets a listener that reports to this sink, tagging each event with the given source.
+   * The source distinguishes concurrent operations, such as the account template being created.
+   */
+  public ProgressListener getListener(String source) {
+    return (step, id, elapsedNanos) -> {
+      Lock lock = closeLock.readLock();
+      lock.lock();
+      try {
+        if (closed) {
+          throw new IllegalStateException("Sink closed");
+        }
+        Event event = new Event(source, step, id, elapsedNanos);
+        try {
+          if (!offer(event)) {
+            throw new IllegalStateException("Writer thread stopped");
+          }
+        } catch (InterruptedException e) {
+          // Publish only when there is room, then restore the interrupted status
+          if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+          }
+          Thread.currentThread().interrupt();
+        }
+      } finally {
+        lock.unlock();
+      }
+    };
+  }
+
+  /**
+   * Gets the number of events dropped because the reporting thread was interrupted
+   * while the queue was full.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Queues an event, waiting for space while the writer thread is running.
+   *
+   * @return  <code>false</code> when the writer thread has stopped
+   */
+  private boolean offer(Event event) throws InterruptedException {
+    while (!queue.offer(event, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (!thread.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes all queued events and stops the writer thread.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    Lock lock = closeLock.writeLock();
+    lock.lockInterruptibly();
+    try {
+      if (!closed) {
+        closed = true;
+        offer(END);
+      }
+    } finally {
+      lock.unlock();
+    }
+    thread.join();
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void writeEvents() {
+    List<Event> batch = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    try {
+      while (true) {
+        batch.add(queue.take());
+        queue.drainTo(batch);
+        boolean end = false;
+        for (Event event : batch) {
+          if (event == END) {
+            end = true;
+          } else {
+            format(event, sb);
+          }
+        }
+        batch.clear();
+        try {
+          out.append(sb);
+          out.flush();
+        } catch (IOException e) {
+          logger.log(Level.WARNING, null, e);
+        }
+        sb.setLength(0);
+        if (end) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void format(Event event, StringBuilder sb) {
+    switch (format) {
+      case TEXT:
+        if (event.source != null) {
+          sb.append('[').append(event.source).append("] ");
+        }
+        sb.append(event.step.toText(event.id, event.elapsedNanos)).append('\n');
+        break;
+      case JSON:
+        sb.append('{');
+        if (event.source != null) {
+          sb.append("\"source\":");
+          Json.appendString(event.source, sb);
+          sb.append(',');
+        }
+        sb.append("\"step\":\"").append(event.step.name()).append('"');
+        if (event.id instanceof Number) {
+          sb.append(",\"id\":").append(event.id);
+        } else if (event.id != null) {
+          sb.append(",\"id\":");
+          Json.appendString(event.id.toString(), sb);
+        }
+        sb.append(",\"elapsedNanos\":").append(event.elapsedNanos).append("}\n");
+        break;
+      default:
+        throw new AssertionError("Unexpected format: " + format);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.progress;
+
+import java.io.PrintWriter;
+
+/**
+ * Writes each progress event as a line of text, flushing after every event.
+ * This is the verbose output historically written by the examples.
+ *
+ * @see  AsyncProgressSink  for output that does not block the operation
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PrintWriterProgressListener implements ProgressListener {
+
+  private final PrintWriter out;
+
+  /**
+   * Creates a new listener writing to the given writer.
+   */
+  public PrintWriterProgressListener(PrintWriter out) {
+    this.out = out;
+  }
+
+  @Override
+  public void progress(Step step, Object id, long elapsedNanos) {
+    synchronized (out) {
+      out.println(step.toText(id, elapsedNanos));
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.progress;
+
+/**
+ * Receives progress events as an operation proceeds.
+ *
+ * <p>Callers check for a <code>null</code> listener before reporting, so no event
+ * objects are created when nothing is listening.  Implementations must be
+ * thread-safe when shared between concurrent operations.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+  /**
+   * Called when a step has been completed.
+   *
+   * @param  step          the step that was completed
+   * @param  id            the identifier of the entity affected, such as a name or primary key,
+   *                       or <code>null</code> when the step has no entity
+   * @param  elapsedNanos  the time elapsed since the operation began
+   */
+  void progress(Step step, Object id, long elapsedNanos);
+
+  /**
+   * Called when a step has been completed, with the time spent performing that
+   * step alone.  Steps may run concurrently, so this duration cannot be derived
+   * from the events before it.
+   *
+   * @param  step          the step that was completed
+   * @param  id            the identifier of the entity affected, such as a name or primary key,
+   *                       or <code>null</code> when the step has no entity
+   * @param  elapsedNanos  the time elapsed since the operation began
+   * @param  stepNanos     the time spent performing the step
+   */
+  default void progress(Step step, Object id, long elapsedNanos, long stepNanos) {
+    progress(step, id, elapsedNanos);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.progress;
+
+import com.aoapps.sql.SQLUtility;
+
+/**
+ * The steps reported to a {@link ProgressListener}.
+ *
+ * @author  AO Industries, Inc.
+ */
+public enum Step {
+  ACCOUNT_ADDED("Account added, accounting="),
+  PACKAGE_ADDED("Package added, name="),
+  GROUP_ADDED("Group added, name="),
+  LINUX_SERVER_GROUP_ADDED("LinuxServerGroup added, id="),
+  USERNAME_ADDED("Username added, username="),
+  LINUX_ACCOUNT_ADDED("User added, username="),
+  FTP_GUEST_USER_ADDED("User flagged as FtpGuestUser, username="),
+  LINUX_SERVER_ACCOUNT_ADDED("UserServer added, id="),
+  LINUX_ACCOUNT_REBUILD_WAITING("Waiting for UserServer rebuild on "),
+  LINUX_SERVER_ACCOUNT_PASSWORD_SET("Password set for UserServer "),
+  IP_ADDRESS_PACKAGE_SET("IpAddress package set, package="),
+  HTTPD_TOMCAT_STD_SITE_ADDED("HttpdTomcatStdSite added, id="),
+  HTTPD_SITE_REBUILD_WAITING("Waiting for HttpdSite rebuilds on "),
+  DONE("Done in ") {
+    @Override
+    public String toText(Object id, long elapsedNanos) {
+      return getLabel() + SQLUtility.formatDecimal3(elapsedNanos / 1000000) + " seconds";
+    }
+  };
+
+  private final String label;
+
+  Step(String label) {
+    this.label = label;
+  }
+
+  /**
+   * Gets the human-readable label, which is followed by the entity ID in text output.
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Formats this step as a single line of human-readable text, without any line terminator.
+   */
+  public String toText(Object id, long elapsedNanos) {
+    return label + id;
+  }
+}
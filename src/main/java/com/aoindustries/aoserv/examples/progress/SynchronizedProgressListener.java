@@ -0,0 +1,64 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.progress;
+
+/**
+ * Serializes the progress events of an operation whose steps run concurrently,
+ * so that a listener written for one thread at a time receives one event at a
+ * time, each completely before the next.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class SynchronizedProgressListener implements ProgressListener {
+
+  /**
+   * Wraps a listener so its callbacks are never concurrent.
+   *
+   * @param  delegate  the listener to forward to, or <code>null</code> for none
+   *
+   * @return  the wrapped listener, or <code>null</code> when <code>delegate</code> is <code>null</code>
+   */
+  public static ProgressListener wrap(ProgressListener delegate) {
+    if (delegate == null || delegate instanceof SynchronizedProgressListener) {
+      return delegate;
+    }
+    return new SynchronizedProgressListener(delegate);
+  }
+
+  private final ProgressListener delegate;
+
+  private SynchronizedProgressListener(ProgressListener delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public synchronized void progress(Step step, Object id, long elapsedNanos) {
+    delegate.progress(step, id, elapsedNanos);
+  }
+
+  @Override
+  public synchronized void progress(Step step, Object id, long elapsedNanos, long stepNanos) {
+    delegate.progress(step, id, elapsedNanos, stepNanos);
+  }
+}
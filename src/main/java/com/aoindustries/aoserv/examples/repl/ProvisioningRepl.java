@@ -0,0 +1,573 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.repl;
+
+import com.aoapps.lang.util.ErrorPrinter;
+import com.aoapps.lang.validation.ValidationException;
+import com.aoapps.net.DomainName;
+import com.aoapps.net.Email;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.linux.Group;
+import com.aoindustries.aoserv.client.linux.PosixPath;
+import com.aoindustries.aoserv.client.linux.User;
+import com.aoindustries.aoserv.client.linux.User.Gecos;
+import com.aoindustries.aoserv.examples.CreateAccount;
+import com.aoindustries.aoserv.examples.concurrent.TableWarmup;
+import com.aoindustries.aoserv.examples.email.AddEmailInbox;
+import com.aoindustries.aoserv.examples.ftp.AddFtpGuestUser;
+import com.aoindustries.aoserv.examples.mysql.AddMysqlUser;
+import com.aoindustries.aoserv.examples.postgres.AddPostgresUser;
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import com.aoindustries.aoserv.examples.snapshot.ReferenceSnapshot;
+import com.aoindustries.aoserv.examples.trace.Span;
+import com.aoindustries.aoserv.examples.trace.Tracer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A long-lived process that performs provisioning commands using one warm
+ * <code>AoservConnector</code>.  Scripts avoid paying JVM startup, connector
+ * setup, SSL handshakes, and cold table caches on every operation.
+ *
+ * <p>Commands are read one per line, as tab-separated values, from standard input
+ * or from connections to a TCP socket that may only be bound to a loopback address:</p>
+ *
+ * <pre>id\tcommand\targ1\targ2\t...</pre>
+ *
+ * <p>Commands from the same session are performed concurrently, and results are
+ * written as each completes, tagged with the <code>id</code> of the command:</p>
+ *
+ * <pre>id\tPROGRESS\tmillis\ttext
+ * id\tOK\tmillis\tresult
+ * id\tERROR\tmillis\tmessage</pre>
+ *
+ * <p>Blank lines and lines starting with <code>#</code> are ignored.  Enter
+ * <code>help</code> as the command for the list of commands and their arguments.
+ * The session ends at end of input, after all its commands complete.</p>
+ *
+ * <p>Unix-domain sockets are not available until Java 16, so a loopback TCP
+ * socket is used instead.  Since any local user may connect to a loopback socket,
+ * listening requires the system property
+ * <code>com.aoindustries.aoserv.examples.repl.ProvisioningRepl.tokenFile</code>,
+ * naming a file readable only by its owner that holds a shared secret on its first
+ * line.  The first line of each TCP session must be that secret, otherwise the
+ * connection is closed without performing any commands.</p>
+ *
+ * <p>Each command is traced as a {@link Span} when the system property
+ * <code>com.aoindustries.aoserv.examples.repl.ProvisioningRepl.traceFile</code>
+ * is set, sampled at the rate given by the <code>.sampleRate</code> property,
+ * which defaults to <code>1</code>.</p>
+ *
+ * <p>When the system property
+ * <code>com.aoindustries.aoserv.examples.repl.ProvisioningRepl.snapshotFile</code>
+ * is set, the server of each command is validated against a {@link ReferenceSnapshot}
+ * before the command is performed, so a mistyped server fails without contacting
+ * the master.  The snapshot is used for up to the number of milliseconds given by the
+ * <code>.snapshotMaxAge</code> property, which defaults to one day.  While the
+ * snapshot file is fresh, the host, server, and package definition tables are
+ * not loaded at startup, but on first use by a command.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class ProvisioningRepl {
+
+  private static final Logger logger = Logger.getLogger(ProvisioningRepl.class.getName());
+
+  /**
+   * The time allowed for a TCP session to send the shared secret.
+   */
+  private static final int TOKEN_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Runs the provisioning REPL.  Without arguments, reads commands from standard
+   * input and writes results to standard output.
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  public static void main(String[] args) {
+    if (args.length != 0 && args.length != 2) {
+      System.err.println("usage: " + ProvisioningRepl.class.getName() + " [listen_address listen_port]");
+      System.exit(1);
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(
+          Math.max(4, Runtime.getRuntime().availableProcessors() * 4),
+          runnable -> {
+            Thread thread = new Thread(runnable, ProvisioningRepl.class.getSimpleName() + " worker");
+            thread.setDaemon(true);
+            return thread;
+          }
+      );
+      Tracer tracer = null;
+      ReferenceSnapshot snapshot = null;
+      try {
+        String traceFile = System.getProperty(ProvisioningRepl.class.getName() + ".traceFile");
+        if (traceFile != null) {
+          tracer = new Tracer(
+              Paths.get(traceFile),
+              "aoserv-examples",
+              Double.parseDouble(System.getProperty(ProvisioningRepl.class.getName() + ".sampleRate", "1"))
+          );
+          Tracer.install(tracer);
+        }
+        AoservConnector conn = AoservConnector.getConnector();
+        String snapshotFile = System.getProperty(ProvisioningRepl.class.getName() + ".snapshotFile");
+        if (snapshotFile != null) {
+          snapshot = ReferenceSnapshot.open(
+              conn,
+              Paths.get(snapshotFile),
+              Long.parseLong(System.getProperty(ProvisioningRepl.class.getName() + ".snapshotMaxAge", "86400000")),
+              executor
+          );
+        }
+        ProvisioningRepl repl = new ProvisioningRepl(conn, executor, snapshot);
+        if (args.length == 0) {
+          repl.serve(
+              new InputStreamReader(System.in, StandardCharsets.UTF_8),
+              new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+          );
+        } else {
+          String tokenFile = System.getProperty(ProvisioningRepl.class.getName() + ".tokenFile");
+          if (tokenFile == null) {
+            throw new IllegalArgumentException("System property required to listen: " + ProvisioningRepl.class.getName() + ".tokenFile");
+          }
+          repl.listen(InetAddress.getByName(args[0]), Integer.parseInt(args[1]), readToken(Paths.get(tokenFile)));
+        }
+      } catch (IOException | SQLException | IllegalArgumentException err) {
+        ErrorPrinter.printStackTraces(err, System.err);
+        System.exit(2);
+      } catch (InterruptedException err) {
+        Thread.currentThread().interrupt();
+      } finally {
+        if (snapshot != null) {
+          snapshot.close();
+        }
+        executor.shutdown();
+        if (tracer != null) {
+          try {
+            tracer.close();
+          } catch (IOException err) {
+            ErrorPrinter.printStackTraces(err, System.err);
+          } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * One provisioning command.
+   */
+  @FunctionalInterface
+  private interface Command {
+    /**
+     * Performs the command.
+     *
+     * @param  listener  receives any progress, shared with other commands
+     *
+     * @return  the result to write back, or <code>null</code> for none
+     */
+    Object execute(AoservConnector conn, ProgressListener listener, String[] args) throws IOException, SQLException, ValidationException;
+  }
+
+  private static final class CommandInfo {
+    private final String usage;
+    private final int serverArg;
+    private final Command command;
+
+    /**
+     * @param  serverArg  the index of the argument that is the hostname of a server, or <code>-1</code> for none
+     */
+    private CommandInfo(String usage, int serverArg, Command command) {
+      this.usage = usage;
+      this.serverArg = serverArg;
+      this.command = command;
+    }
+  }
+
+  private static final Map<String, CommandInfo> commands;
+
+  static {
+    Map<String, CommandInfo> newCommands = new LinkedHashMap<>();
+    newCommands.put("add-email-inbox", new CommandInfo(
+        "package username full_name server address domain password",
+        3,
+        (conn, listener, args) -> AddEmailInbox.addEmailInbox(
+            conn,
+            Account.Name.valueOf(args[0]),
+            User.Name.valueOf(args[1]),
+            Gecos.valueOf(args[2]),
+            args[3],
+            args[4],
+            DomainName.valueOf(args[5]),
+            args[6]
+        )
+    ));
+    newCommands.put("add-ftp-guest-user", new CommandInfo(
+        "package username full_name group server home password",
+        4,
+        (conn, listener, args) -> AddFtpGuestUser.addFtpGuestUser(
+            conn,
+            Account.Name.valueOf(args[0]),
+            User.Name.valueOf(args[1]),
+            Gecos.valueOf(args[2]),
+            Group.Name.valueOf(args[3]),
+            DomainName.valueOf(args[4]),
+            PosixPath.valueOf(args[5]),
+            args[6]
+        )
+    ));
+    newCommands.put("add-mysql-user", new CommandInfo(
+        "package username mysql_server server database password",
+        3,
+        (conn, listener, args) -> AddMysqlUser.addMysqlUser(
+            conn,
+            Account.Name.valueOf(args[0]),
+            com.aoindustries.aoserv.client.mysql.User.Name.valueOf(args[1]),
+            com.aoindustries.aoserv.client.mysql.Server.Name.valueOf(args[2]),
+            DomainName.valueOf(args[3]),
+            com.aoindustries.aoserv.client.mysql.Database.Name.valueOf(args[4]),
+            args[5]
+        )
+    ));
+    newCommands.put("add-postgres-user", new CommandInfo(
+        "package username postgres_server server password",
+        3,
+        (conn, listener, args) -> AddPostgresUser.addPostgresUser(
+            conn,
+            Account.Name.valueOf(args[0]),
+            com.aoindustries.aoserv.client.postgresql.User.Name.valueOf(args[1]),
+            com.aoindustries.aoserv.client.postgresql.Server.Name.valueOf(args[2]),
+            args[3],
+            args[4]
+        )
+    ));
+    newCommands.put("create-account", new CommandInfo(
+        "accounting_template server parent_account package_definition_category package_definition_name"
+            + " package_definition_version jvm_username jvm_password ftp_username ftp_password group_name"
+            + " site_name_template mysql_admin_username mysql_app_username mysql_app_password ip_address"
+            + " net_device owns_ip_address server_admin primary_http_hostname alt_http_hostnames(comma-separated)"
+            + " tomcat_version",
+        1,
+        (conn, listener, args) -> {
+          List<DomainName> altHttpHostnames = new ArrayList<>();
+          for (String hostname : args[20].split(",")) {
+            if (!hostname.isEmpty()) {
+              altHttpHostnames.add(DomainName.valueOf(hostname));
+            }
+          }
+          CreateAccount.createAccount(
+              conn,
+              listener,
+              null, // Password strength is checked by the master
+              Account.Name.valueOf(args[0]),
+              args[1],
+              Account.Name.valueOf(args[2]),
+              args[3],
+              args[4],
+              args[5],
+              User.Name.valueOf(args[6]),
+              args[7],
+              User.Name.valueOf(args[8]),
+              args[9],
+              Group.Name.valueOf(args[10]),
+              args[11],
+              com.aoindustries.aoserv.client.mysql.User.Name.valueOf(args[12]),
+              com.aoindustries.aoserv.client.mysql.User.Name.valueOf(args[13]),
+              args[14],
+              com.aoapps.net.InetAddress.valueOf(args[15]),
+              args[16],
+              Boolean.parseBoolean(args[17]),
+              Email.valueOf(args[18]),
+              DomainName.valueOf(args[19]),
+              altHttpHostnames.toArray(new DomainName[altHttpHostnames.size()]),
+              args[21]
+          );
+          return null;
+        }
+    ));
+    newCommands.put("ping", new CommandInfo(
+        "",
+        -1,
+        (conn, listener, args) -> "pong"
+    ));
+    commands = Collections.unmodifiableMap(newCommands);
+  }
+
+  /**
+   * Removes any characters that would break the line-oriented output.
+   */
+  private static String clean(Object value) {
+    return value == null ? "" : value.toString().replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+  }
+
+  private final AoservConnector conn;
+  private final Executor executor;
+  private final ReferenceSnapshot snapshot;
+
+  /**
+   * Creates a new provisioning REPL.
+   *
+   * @param  conn      the connector shared by all commands, kept warm between commands
+   * @param  executor  the executor that performs the commands
+   * @param  snapshot  the snapshot that servers are validated against, or <code>null</code> for none
+   */
+  private ProvisioningRepl(AoservConnector conn, Executor executor, ReferenceSnapshot snapshot) {
+    this.conn = conn;
+    this.executor = executor;
+    this.snapshot = snapshot;
+
+    // Load the tables of every command concurrently, once for the life of the REPL
+    Set<TableWarmup.Table> tables = EnumSet.noneOf(TableWarmup.Table.class);
+    tables.addAll(AddEmailInbox.TABLES);
+    tables.addAll(AddFtpGuestUser.TABLES);
+    tables.addAll(AddMysqlUser.TABLES);
+    tables.addAll(AddPostgresUser.TABLES);
+    tables.addAll(CreateAccount.TABLES);
+    if (snapshot != null && snapshot.isFromFile()) {
+      // The fresh snapshot answers these lookups, so leave their tables to load on first use
+      tables.removeAll(EnumSet.of(
+          TableWarmup.Table.HOST,
+          TableWarmup.Table.LINUX_SERVER,
+          TableWarmup.Table.PACKAGE_DEFINITION
+      ));
+    }
+    TableWarmup.warmup(conn, executor, tables);
+  }
+
+  /**
+   * Performs all commands from one session, returning once the input has ended
+   * and all commands have completed.
+   */
+  private void serve(Reader in, Writer out) throws IOException, InterruptedException {
+    serve(new BufferedReader(in), out);
+  }
+
+  /**
+   * Performs all commands from one session, returning once the input has ended
+   * and all commands have completed.
+   */
+  private void serve(BufferedReader reader, Writer out) throws IOException, InterruptedException {
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\\t", -1);
+        String id = fields[0];
+        String name = fields.length < 2 ? "help" : fields[1];
+        String[] args = Arrays.copyOfRange(fields, Math.min(2, fields.length), fields.length);
+        pending.add(CompletableFuture.runAsync(() -> execute(id, name, args, out), executor));
+        pending.removeIf(CompletableFuture::isDone);
+      }
+    } finally {
+      // Let the commands already started complete
+      for (CompletableFuture<Void> future : pending) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          logger.log(Level.SEVERE, null, e.getCause());
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void execute(String id, String name, String[] args, Writer out) {
+    final long startNanos = System.nanoTime();
+    Span span = Span.start(name).tag("id", id);
+    try {
+      CommandInfo info = commands.get(name);
+      if (info == null) {
+        if (!"help".equals(name)) {
+          throw new IllegalArgumentException("Unknown command: " + name);
+        }
+        for (Map.Entry<String, CommandInfo> entry : commands.entrySet()) {
+          write(out, id, "PROGRESS", startNanos, entry.getKey() + ' ' + entry.getValue().usage);
+        }
+        write(out, id, "OK", startNanos, null);
+      } else {
+        int expected = info.usage.isEmpty() ? 0 : info.usage.split(" ").length;
+        if (args.length != expected) {
+          throw new IllegalArgumentException("usage: " + name + ' ' + info.usage);
+        }
+        // Validate the server
+        if (
+            snapshot != null
+                && info.serverArg != -1
+                && snapshot.resolve(ReferenceSnapshot.Section.LINUX_SERVER, args[info.serverArg]) == null
+        ) {
+          throw new IllegalArgumentException("Unknown server: " + args[info.serverArg]);
+        }
+        Object result = info.command.execute(
+            conn,
+            (step, stepId, elapsedNanos) -> {
+              try {
+                write(out, id, "PROGRESS", startNanos, step.toText(stepId, elapsedNanos));
+              } catch (IOException e) {
+                logger.log(Level.WARNING, null, e);
+              }
+            },
+            args
+        );
+        write(out, id, "OK", startNanos, result);
+      }
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      span.error(t);
+      try {
+        write(out, id, "ERROR", startNanos, t);
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, null, e);
+      }
+    } finally {
+      span.close();
+    }
+  }
+
+  private static void write(Writer out, String id, String status, long startNanos, Object value) throws IOException {
+    String line = clean(id) + '\t' + status + '\t' + ((System.nanoTime() - startNanos) / 1000000) + '\t' + clean(value) + '\n';
+    synchronized (out) {
+      out.write(line);
+      out.flush();
+    }
+  }
+
+  /**
+   * Reads the shared secret from the first line of a file that only its owner may access.
+   *
+   * @throws  IllegalArgumentException  when the file may be accessed by others or has no secret
+   */
+  private static byte[] readToken(Path tokenFile) throws IOException {
+    try {
+      Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(tokenFile);
+      permissions.retainAll(EnumSet.of(
+          PosixFilePermission.GROUP_READ,
+          PosixFilePermission.GROUP_WRITE,
+          PosixFilePermission.GROUP_EXECUTE,
+          PosixFilePermission.OTHERS_READ,
+          PosixFilePermission.OTHERS_WRITE,
+          PosixFilePermission.OTHERS_EXECUTE
+      ));
+      if (!permissions.isEmpty()) {
+        throw new IllegalArgumentException("Token file may be accessed by others, expected mode 0600: " + tokenFile);
+      }
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system, rely on its own access control
+    }
+    List<String> lines = Files.readAllLines(tokenFile, StandardCharsets.UTF_8);
+    String token = lines.isEmpty() ? "" : lines.get(0).trim();
+    if (token.isEmpty()) {
+      throw new IllegalArgumentException("Token file has no secret on its first line: " + tokenFile);
+    }
+    return token.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Listens on a TCP socket, performing the commands of each connection as a separate session.
+   * Only a loopback address is allowed, and each session must start with the shared secret,
+   * since any local user may connect.
+   *
+   * @param  token  the shared secret that must be the first line of each session
+   *
+   * @throws  IllegalArgumentException  when <code>listenAddress</code> is not a loopback address
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void listen(InetAddress listenAddress, int listenPort, byte[] token) throws IOException {
+    if (!listenAddress.isLoopbackAddress()) {
+      throw new IllegalArgumentException("Refusing to listen on non-loopback address: " + listenAddress);
+    }
+    try (ServerSocket serverSocket = new ServerSocket(listenPort, 50, listenAddress)) {
+      while (!Thread.currentThread().isInterrupted()) {
+        final Socket socket = serverSocket.accept();
+        new Thread(
+            () -> {
+              try {
+                try {
+                  BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                  // Authenticate before reading any commands
+                  socket.setSoTimeout(TOKEN_TIMEOUT);
+                  String line;
+                  try {
+                    line = reader.readLine();
+                  } catch (SocketTimeoutException e) {
+                    line = null;
+                  }
+                  if (line == null || !MessageDigest.isEqual(token, line.getBytes(StandardCharsets.UTF_8))) {
+                    logger.log(Level.WARNING, "Closing unauthenticated session from " + socket.getInetAddress() + ":" + socket.getPort());
+                    return;
+                  }
+                  socket.setSoTimeout(0);
+                  serve(reader, new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                } finally {
+                  socket.close();
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } catch (ThreadDeath td) {
+                throw td;
+              } catch (Throwable t) {
+                logger.log(Level.SEVERE, null, t);
+              }
+            },
+            ProvisioningRepl.class.getSimpleName() + ": " + socket.getInetAddress() + ":" + socket.getPort()
+        ).start();
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.report;
+
+/**
+ * A compact one-to-many index between <code>int</code> IDs, stored as two
+ * arrays in compressed sparse row form.  The children of each parent are kept
+ * in ascending order.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class IntIndex {
+
+  private final int[] offsets;
+  private final int[] children;
+
+  /**
+   * Builds an index from the parent of each child.
+   *
+   * @param  parentCount  the number of parents, which are numbered from zero
+   * @param  parentOf     the parent of each child, or <code>-1</code> for a child with no parent
+   */
+  public IntIndex(int parentCount, int[] parentOf) {
+    offsets = new int[parentCount + 1];
+    int total = 0;
+    for (int parent : parentOf) {
+      if (parent != -1) {
+        offsets[parent + 1]++;
+        total++;
+      }
+    }
+    for (int i = 0; i < parentCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    children = new int[total];
+    int[] next = offsets.clone();
+    for (int child = 0; child < parentOf.length; child++) {
+      int parent = parentOf[child];
+      if (parent != -1) {
+        children[next[parent]++] = child;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of children of the given parent.
+   */
+  public int getChildCount(int parent) {
+    return offsets[parent + 1] - offsets[parent];
+  }
+
+  /**
+   * Gets a child of the given parent.
+   *
+   * @param  index  the index of the child, from zero to {@link #getChildCount(int)} exclusive
+   */
+  public int getChild(int parent, int index) {
+    return children[offsets[parent] + index];
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.report;
+
+import com.aoapps.net.DomainName;
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import com.aoindustries.aoserv.client.linux.UserServer;
+import com.aoindustries.aoserv.client.linux.UserType;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.examples.Json;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Exports an inventory of every account with its packages, Linux users, email
+ * inboxes, MySQL and PostgreSQL databases, and web sites.
+ *
+ * <p>The rows are read through the client's table caches, which hold each
+ * table in full; the client offers no cursor over a table, so this export is
+ * not memory-bounded.  What it avoids is adding a per-account object graph on
+ * top of those caches.  Resources are joined to their packages through
+ * {@link PackageIndex} and {@link IntIndex}, which store only <code>int</code>
+ * arrays alongside the cached rows.  Accounts are then formatted by parallel
+ * workers and written in account order, with only a small window of formatted
+ * accounts held at once.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class InventoryExport {
+
+  /** Make no instances. */
+  private InventoryExport() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The output formats supported.
+   */
+  public enum Format {
+    /**
+     * Comma-separated values with a header row.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line.
+     */
+    JSONL
+  }
+
+  /**
+   * The types of resources exported.
+   */
+  public enum Type {
+    PACKAGE,
+    LINUX_USER,
+    EMAIL_INBOX,
+    MYSQL_DATABASE,
+    POSTGRES_DATABASE,
+    SITE
+  }
+
+  @FunctionalInterface
+  private interface Accessor<V, R> {
+    R get(V row) throws IOException, SQLException;
+  }
+
+  /**
+   * One table of resources, joined to packages.
+   */
+  private static final class Source<V> {
+
+    private final List<V> rows;
+    private final Accessor<? super V, Type> type;
+    private final Accessor<? super V, Object> name;
+    private final Accessor<? super V, DomainName> server;
+    private IntIndex byPackage;
+
+    private Source(
+        List<V> rows,
+        Accessor<? super V, Type> type,
+        Accessor<? super V, Object> name,
+        Accessor<? super V, DomainName> server
+    ) {
+      this.rows = rows;
+      this.type = type;
+      this.name = name;
+      this.server = server;
+    }
+
+    private void index(PackageIndex packages, Accessor<? super V, Package> packageOf) throws IOException, SQLException {
+      int[] parentOf = new int[rows.size()];
+      for (int i = 0; i < parentOf.length; i++) {
+        parentOf[i] = packages.getPackageId(packageOf.get(rows.get(i)));
+      }
+      byPackage = new IntIndex(packages.getPackageCount(), parentOf);
+    }
+
+    private void format(Format format, Account.Name account, Account.Name pk, int packageId, StringBuilder out)
+        throws IOException, SQLException {
+      for (int i = 0, count = byPackage.getChildCount(packageId); i < count; i++) {
+        V row = rows.get(byPackage.getChild(packageId, i));
+        appendRecord(format, account, pk, type.get(row), server.get(row), name.get(row), out);
+      }
+    }
+  }
+
+  /**
+   * Exports the inventory.
+   *
+   * @param  conn         the <code>AoservConnector</code> to use
+   * @param  out          the writer to send output to, which will be flushed but not closed
+   * @param  format       the output format
+   * @param  executor     the executor that performs indexing and formatting
+   * @param  parallelism  the number of accounts formatted concurrently
+   */
+  public static void export(
+      AoservConnector conn,
+      Writer out,
+      Format format,
+      Executor executor,
+      int parallelism
+  ) throws IOException, SQLException, InterruptedException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+    }
+    PackageIndex packages = PackageIndex.build(conn);
+
+    // Index each table by package, concurrently
+    Source<UserServer> linuxUsers = new Source<>(
+        conn.getLinux().getUserServer().getRows(),
+        lsa -> UserType.EMAIL.equals(lsa.getLinuxAccount().getType().getName()) ? Type.EMAIL_INBOX : Type.LINUX_USER,
+        lsa -> lsa.getLinuxAccount_username_id(),
+        lsa -> lsa.getServer().getHostname()
+    );
+    Source<com.aoindustries.aoserv.client.mysql.Database> mysqlDatabases = new Source<>(
+        conn.getMysql().getDatabase().getRows(),
+        md -> Type.MYSQL_DATABASE,
+        md -> md.getName(),
+        md -> md.getMysqlServer().getLinuxServer().getHostname()
+    );
+    Source<com.aoindustries.aoserv.client.postgresql.Database> postgresDatabases = new Source<>(
+        conn.getPostgresql().getDatabase().getRows(),
+        pd -> Type.POSTGRES_DATABASE,
+        pd -> pd.getName(),
+        pd -> pd.getPostgresServer().getLinuxServer().getHostname()
+    );
+    Source<Site> sites = new Source<>(
+        conn.getWeb().getSite().getRows(),
+        site -> Type.SITE,
+        site -> site.getName(),
+        site -> site.getLinuxServer().getHostname()
+    );
+    List<Source<?>> sources = List.of(linuxUsers, mysqlDatabases, postgresDatabases, sites);
+    await(CompletableFuture.allOf(
+        CompletableFuture.runAsync(() -> index(linuxUsers, packages, lsa -> lsa.getLinuxAccount().getUsername().getPackage()), executor),
+        CompletableFuture.runAsync(() -> index(mysqlDatabases, packages, md -> md.getPackage()), executor),
+        CompletableFuture.runAsync(
+            () -> index(postgresDatabases, packages, pd -> pd.getDatDBA().getPostgresUser().getUsername().getPackage()),
+            executor
+        ),
+        CompletableFuture.runAsync(() -> index(sites, packages, site -> site.getPackage()), executor)
+    ));
+
+    // Join packages to accounts
+    int numPackages = packages.getPackageCount();
+    int[] accountOf = new int[numPackages];
+    for (int i = 0; i < numPackages; i++) {
+      accountOf[i] = packages.getAccountIdOfPackage(i);
+    }
+    IntIndex packagesByAccount = new IntIndex(packages.getAccountCount(), accountOf);
+
+    // Format accounts in parallel, writing in order
+    if (format == Format.CSV) {
+      out.write("account,package,type,server,name\n");
+    }
+    int window = parallelism * 4;
+    Queue<CompletableFuture<String>> pending = new ArrayDeque<>(window);
+    for (int accountId = 0, numAccounts = packages.getAccountCount(); accountId < numAccounts; accountId++) {
+      final int id = accountId;
+      pending.add(CompletableFuture.supplyAsync(() -> formatAccount(format, packages, packagesByAccount, sources, id), executor));
+      if (pending.size() >= window) {
+        out.write(await(pending.remove()));
+      }
+    }
+    while (!pending.isEmpty()) {
+      out.write(await(pending.remove()));
+    }
+    out.flush();
+  }
+
+  private static <V> void index(Source<V> source, PackageIndex packages, Accessor<? super V, Package> packageOf) {
+    try {
+      source.index(packages, packageOf);
+    } catch (IOException | SQLException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static String formatAccount(
+      Format format,
+      PackageIndex packages,
+      IntIndex packagesByAccount,
+      List<Source<?>> sources,
+      int accountId
+  ) {
+    try {
+      StringBuilder out = new StringBuilder();
+      Account.Name account = packages.getAccount(accountId).getName();
+      for (int i = 0, count = packagesByAccount.getChildCount(accountId); i < count; i++) {
+        int packageId = packagesByAccount.getChild(accountId, i);
+        Account.Name pk = packages.getPackage(packageId).getName();
+        appendRecord(format, account, pk, Type.PACKAGE, null, pk, out);
+        for (Source<?> source : sources) {
+          source.format(format, account, pk, packageId, out);
+        }
+      }
+      return out.toString();
+    } catch (IOException | SQLException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static void appendRecord(
+      Format format,
+      Account.Name account,
+      Account.Name pk,
+      Type type,
+      DomainName server,
+      Object name,
+      StringBuilder out
+  ) {
+    switch (format) {
+      case CSV:
+        appendCsv(account, out);
+        out.append(',');
+        appendCsv(pk, out);
+        out.append(',').append(type.name()).append(',');
+        appendCsv(server, out);
+        out.append(',');
+        appendCsv(name, out);
+        out.append('\n');
+        break;
+      case JSONL:
+        out.append("{\"account\":");
+        appendJson(account, out);
+        out.append(",\"package\":");
+        appendJson(pk, out);
+        out.append(",\"type\":\"").append(type.name()).append("\",\"server\":");
+        appendJson(server, out);
+        out.append(",\"name\":");
+        appendJson(name, out);
+        out.append("}\n");
+        break;
+      default:
+        throw new AssertionError("Unexpected format: " + format);
+    }
+  }
+
+  private static void appendCsv(Object value, StringBuilder out) {
+    if (value != null) {
+      String str = value.toString();
+      if (str.indexOf(',') == -1 && str.indexOf('"') == -1 && str.indexOf('\n') == -1 && str.indexOf('\r') == -1) {
+        out.append(str);
+      } else {
+        out.append('"').append(str.replace("\"", "\"\"")).append('"');
+      }
+    }
+  }
+
+  private static void appendJson(Object value, StringBuilder out) {
+    Json.appendString(value == null ? null : value.toString(), out);
+  }
+
+  /**
+   * Waits for a future, unwrapping the original exception.
+   */
+  private static <V> V await(CompletableFuture<V> future) throws IOException, SQLException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.report;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Interns accounts and packages to dense <code>int</code> IDs, so that related
+ * rows may be joined and counted with primitive arrays instead of maps keyed by
+ * name.  Each account and package is interned once, when the index is built,
+ * into an open-addressed table of <code>int</code> IDs, so lookups neither box
+ * nor allocate.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PackageIndex {
+
+  /**
+   * Builds an index of all accounts and packages currently visible.
+   */
+  public static PackageIndex build(AoservConnector conn) throws IOException, SQLException {
+    return new PackageIndex(
+        conn.getAccount().getAccount().getRows(),
+        conn.getBilling().getPackage().getRows()
+    );
+  }
+
+  /**
+   * Builds an open-addressed table of the IDs of the given names, stored as
+   * <code>id + 1</code> so that zero marks an empty slot.
+   */
+  private static int[] intern(Account.Name[] names) {
+    int size = Integer.highestOneBit(Math.max(names.length, 1) * 2 - 1) << 1;
+    int[] table = new int[size];
+    int mask = size - 1;
+    for (int id = 0; id < names.length; id++) {
+      int slot = names[id].hashCode() & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+    return table;
+  }
+
+  /**
+   * Looks-up the ID of a name in a table built by {@link #intern(com.aoindustries.aoserv.client.account.Account.Name[])}.
+   *
+   * @return  the ID or <code>-1</code> when not in the table
+   */
+  private static int lookup(int[] table, Account.Name[] names, Account.Name name) {
+    int mask = table.length - 1;
+    int slot = name.hashCode() & mask;
+    int entry;
+    while ((entry = table[slot]) != 0) {
+      if (names[entry - 1].equals(name)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private final List<Account> accounts;
+  private final Account.Name[] accountNames;
+  private final int[] accountIds;
+  private final List<Package> packages;
+  private final Account.Name[] packageNames;
+  private final int[] packageIds;
+  private final int[] accountOfPackage;
+
+  private PackageIndex(List<Account> accounts, List<Package> packages) throws IOException, SQLException {
+    this.accounts = accounts;
+    int numAccounts = accounts.size();
+    accountNames = new Account.Name[numAccounts];
+    for (int i = 0; i < numAccounts; i++) {
+      accountNames[i] = accounts.get(i).getName();
+    }
+    accountIds = intern(accountNames);
+    this.packages = packages;
+    int numPackages = packages.size();
+    packageNames = new Account.Name[numPackages];
+    for (int i = 0; i < numPackages; i++) {
+      packageNames[i] = packages.get(i).getName();
+    }
+    packageIds = intern(packageNames);
+    accountOfPackage = new int[numPackages];
+    for (int i = 0; i < numPackages; i++) {
+      Account account = packages.get(i).getAccount();
+      accountOfPackage[i] = account == null ? -1 : getAccountId(account.getName());
+    }
+  }
+
+  /**
+   * Gets the number of accounts, which are numbered from zero.
+   */
+  public int getAccountCount() {
+    return accounts.size();
+  }
+
+  /**
+   * Gets the account for the given ID.
+   */
+  public Account getAccount(int accountId) {
+    return accounts.get(accountId);
+  }
+
+  /**
+   * Gets the ID of the given account.
+   *
+   * @return  the ID or <code>-1</code> when not in the index
+   */
+  public int getAccountId(Account.Name account) {
+    return lookup(accountIds, accountNames, account);
+  }
+
+  /**
+   * Gets the number of packages, which are numbered from zero.
+   */
+  public int getPackageCount() {
+    return packages.size();
+  }
+
+  /**
+   * Gets the package for the given ID.
+   */
+  public Package getPackage(int packageId) {
+    return packages.get(packageId);
+  }
+
+  /**
+   * Gets the ID of the given package.
+   *
+   * @return  the ID or <code>-1</code> when not in the index
+   */
+  public int getPackageId(Account.Name packageName) {
+    return lookup(packageIds, packageNames, packageName);
+  }
+
+  /**
+   * Gets the ID of the given package.
+   *
+   * @return  the ID or <code>-1</code> when <code>null</code> or not in the index
+   */
+  public int getPackageId(Package pk) {
+    return pk == null ? -1 : getPackageId(pk.getName());
+  }
+
+  /**
+   * Gets the ID of the account that owns the given package.
+   *
+   * @return  the ID or <code>-1</code> when the account is not in the index
+   */
+  public int getAccountIdOfPackage(int packageId) {
+    return accountOfPackage[packageId];
+  }
+}
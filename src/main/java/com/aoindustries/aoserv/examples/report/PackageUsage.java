@@ -0,0 +1,217 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.report;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.account.Account;
+import com.aoindustries.aoserv.client.billing.Package;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts the resources used by each <code>Package</code>, for billing and
+ * capacity planning.
+ *
+ * <p>Packages are interned to <code>int</code> IDs by {@link PackageIndex}, and
+ * counts are kept in one <code>int[]</code> per resource, indexed by package.
+ * Every table is counted concurrently, and each table is itself split across
+ * the fork/join pool to resolve the package of each row.  The resolved IDs are
+ * written to one shared <code>int[]</code> per table and tallied in a single
+ * sequential pass, so no per-task count arrays are allocated or merged.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PackageUsage {
+
+  /**
+   * The resources counted.
+   */
+  public enum Resource {
+    LINUX_SERVER_ACCOUNT,
+    MYSQL_DATABASE,
+    MYSQL_USER,
+    POSTGRES_DATABASE,
+    EMAIL_ADDRESS,
+    SITE
+  }
+
+  /**
+   * The number of rows below which a table is resolved without further splitting.
+   */
+  private static final int THRESHOLD = 4096;
+
+  @FunctionalInterface
+  private interface PackageOf<V> {
+    Package get(V row) throws IOException, SQLException;
+  }
+
+  /**
+   * Resolves the package ID of a range of rows, splitting large ranges in half.
+   * Each task writes only its own range of the shared array.
+   */
+  private static final class Resolve<V> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient PackageIndex packages;
+    private final transient List<V> rows;
+    private final transient PackageOf<? super V> packageOf;
+    private final int[] packageIds;
+    private final int from;
+    private final int to;
+
+    private Resolve(PackageIndex packages, List<V> rows, PackageOf<? super V> packageOf, int[] packageIds, int from, int to) {
+      this.packages = packages;
+      this.rows = rows;
+      this.packageOf = packageOf;
+      this.packageIds = packageIds;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= THRESHOLD) {
+        try {
+          for (int i = from; i < to; i++) {
+            packageIds[i] = packages.getPackageId(packageOf.get(rows.get(i)));
+          }
+        } catch (IOException | SQLException e) {
+          throw new CompletionException(e);
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(
+          new Resolve<>(packages, rows, packageOf, packageIds, from, mid),
+          new Resolve<>(packages, rows, packageOf, packageIds, mid, to)
+      );
+    }
+  }
+
+  /**
+   * Resolves the package of every row, then tallies the rows by package.
+   */
+  private static <V> ForkJoinTask<int[]> count(ForkJoinPool pool, PackageIndex packages, List<V> rows, PackageOf<? super V> packageOf) {
+    return pool.submit(ForkJoinTask.adapt(() -> {
+      int[] packageIds = new int[rows.size()];
+      new Resolve<>(packages, rows, packageOf, packageIds, 0, packageIds.length).invoke();
+      int[] counts = new int[packages.getPackageCount()];
+      for (int packageId : packageIds) {
+        if (packageId != -1) {
+          counts[packageId]++;
+        }
+      }
+      return counts;
+    }));
+  }
+
+  /**
+   * Counts the resources of every package.
+   *
+   * @param  conn  the <code>AoservConnector</code> to use
+   * @param  pool  the pool that performs the counting, such as {@link ForkJoinPool#commonPool()}
+   */
+  public static PackageUsage aggregate(AoservConnector conn, ForkJoinPool pool) throws IOException, SQLException {
+    PackageIndex packages = PackageIndex.build(conn);
+    Map<Resource, ForkJoinTask<int[]>> tasks = new EnumMap<>(Resource.class);
+    tasks.put(Resource.LINUX_SERVER_ACCOUNT, count(pool, packages, conn.getLinux().getUserServer().getRows(),
+        lsa -> lsa.getLinuxAccount().getUsername().getPackage()));
+    tasks.put(Resource.MYSQL_DATABASE, count(pool, packages, conn.getMysql().getDatabase().getRows(),
+        md -> md.getPackage()));
+    tasks.put(Resource.MYSQL_USER, count(pool, packages, conn.getMysql().getUserServer().getRows(),
+        msu -> msu.getMysqlUser().getUsername().getPackage()));
+    tasks.put(Resource.POSTGRES_DATABASE, count(pool, packages, conn.getPostgresql().getDatabase().getRows(),
+        pd -> pd.getDatDBA().getPostgresUser().getUsername().getPackage()));
+    tasks.put(Resource.EMAIL_ADDRESS, count(pool, packages, conn.getEmail().getAddress().getRows(),
+        ea -> ea.getDomain().getPackage()));
+    tasks.put(Resource.SITE, count(pool, packages, conn.getWeb().getSite().getRows(),
+        site -> site.getPackage()));
+    int[][] counts = new int[Resource.values().length][];
+    try {
+      for (Map.Entry<Resource, ForkJoinTask<int[]>> entry : tasks.entrySet()) {
+        counts[entry.getKey().ordinal()] = entry.getValue().join();
+      }
+    } catch (CompletionException e) {
+      // Rethrown exceptions may be wrapped again when joined from another thread
+      Throwable cause = e.getCause();
+      while (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      throw e;
+    }
+    return new PackageUsage(packages, counts);
+  }
+
+  private final PackageIndex packages;
+
+  /**
+   * The counts, indexed by resource ordinal then package ID.
+   */
+  private final int[][] counts;
+
+  private PackageUsage(PackageIndex packages, int[][] counts) {
+    this.packages = packages;
+    this.counts = counts;
+  }
+
+  /**
+   * Gets the index the counts are keyed by.
+   */
+  public PackageIndex getPackageIndex() {
+    return packages;
+  }
+
+  /**
+   * Gets the number of a resource used by a package.
+   *
+   * @param  packageId  the ID from {@link #getPackageIndex()}
+   */
+  public int getCount(int packageId, Resource resource) {
+    return counts[resource.ordinal()][packageId];
+  }
+
+  /**
+   * Gets the number of a resource used by a package.
+   *
+   * @return  the count or <code>0</code> when the package is not found
+   */
+  public int getCount(Account.Name packageName, Resource resource) {
+    int packageId = packages.getPackageId(packageName);
+    return packageId == -1 ? 0 : getCount(packageId, resource);
+  }
+}
@@ -0,0 +1,514 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.snapshot;
+
+import com.aoindustries.aoserv.client.AoservConnector;
+import com.aoindustries.aoserv.client.AoservTable;
+import com.aoindustries.aoserv.client.TableListener;
+import com.aoindustries.aoserv.client.billing.PackageDefinition;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.linux.Shell;
+import com.aoindustries.aoserv.client.net.Host;
+import com.aoindustries.aoserv.client.postgresql.Encoding;
+import com.aoindustries.aoserv.client.schema.AoservProtocol;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A local, on-disk copy of the reference data that changes rarely but is
+ * resolved by name on nearly every run: hosts, servers, package definitions,
+ * shells, and PostgreSQL encodings.
+ *
+ * <p>The snapshot is stored in a compact binary file and read at startup, so
+ * names may be validated and resolved before any table is loaded from the
+ * master.  The master keeps no version of its tables, so the file is used
+ * without contacting the master while it is younger than its maximum age and
+ * was captured from the same master, as the same user, with the same protocol
+ * version.  Otherwise, or when the file is truncated or corrupt, it is captured
+ * again.  While open, a section is recaptured whenever the master invalidates
+ * its table, and {@link #resolve(com.aoindustries.aoserv.examples.snapshot.ReferenceSnapshot.Section, java.lang.String)}
+ * recaptures a section once when a key is not found, so a name added since the
+ * capture is still resolved.  Each section keeps a fingerprint of its rows only
+ * to avoid rewriting the file when a recapture finds nothing changed.
+ * Recaptures of one section are serialized, and the file is always written from
+ * the current sections, so an older capture never replaces a newer one.</p>
+ *
+ * <p>The file is read fully onto the heap instead of being memory-mapped.  It
+ * is only a few kilobytes, read once at startup and decoded into objects right
+ * away, so a mapping would save no copying worth having.  A mapping would also
+ * keep the file open until garbage collected, which prevents replacing it on
+ * some platforms.  Reads through it may also fail with an unchecked error when
+ * another process truncates the file.</p>
+ *
+ * <p>The client table caches themselves cannot be seeded from outside of
+ * <code>aoserv-client</code>, so this snapshot complements them: it answers
+ * the reference lookups, while the tables are loaded on demand, if at all.</p>
+ *
+ * @see  com.aoindustries.aoserv.examples.repl.ProvisioningRepl
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class ReferenceSnapshot implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(ReferenceSnapshot.class.getName());
+
+  private static final int MAGIC = 0x414f5253; // "AORS"
+
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * The sections of the snapshot.  The first column of each row is its unique key.
+   */
+  public enum Section {
+    /**
+     * Columns: name, id.
+     */
+    HOST {
+      @Override
+      AoservTable<?, ?> getTable(AoservConnector conn) {
+        return conn.getNet().getHost();
+      }
+
+      @Override
+      List<String[]> capture(AoservConnector conn) throws IOException, SQLException {
+        List<String[]> rows = new ArrayList<>();
+        for (Host host : conn.getNet().getHost().getRows()) {
+          rows.add(new String[] {host.getName(), Integer.toString(host.getPkey())});
+        }
+        return rows;
+      }
+    },
+    /**
+     * Columns: hostname, id.
+     */
+    LINUX_SERVER {
+      @Override
+      AoservTable<?, ?> getTable(AoservConnector conn) {
+        return conn.getLinux().getServer();
+      }
+
+      @Override
+      List<String[]> capture(AoservConnector conn) throws IOException, SQLException {
+        List<String[]> rows = new ArrayList<>();
+        for (Server linuxServer : conn.getLinux().getServer().getRows()) {
+          rows.add(new String[] {linuxServer.getHostname().toString(), Integer.toString(linuxServer.getPkey())});
+        }
+        return rows;
+      }
+    },
+    /**
+     * Columns: account/category/name/version, id.
+     */
+    PACKAGE_DEFINITION {
+      @Override
+      AoservTable<?, ?> getTable(AoservConnector conn) {
+        return conn.getBilling().getPackageDefinition();
+      }
+
+      @Override
+      List<String[]> capture(AoservConnector conn) throws IOException, SQLException {
+        List<String[]> rows = new ArrayList<>();
+        for (PackageDefinition pd : conn.getBilling().getPackageDefinition().getRows()) {
+          rows.add(new String[] {
+              pd.getAccount().getName() + "/" + pd.getCategory().getName() + "/" + pd.getName() + "/" + pd.getVersion(),
+              Integer.toString(pd.getPkey())
+          });
+        }
+        return rows;
+      }
+    },
+    /**
+     * Columns: path.
+     */
+    SHELL {
+      @Override
+      AoservTable<?, ?> getTable(AoservConnector conn) {
+        return conn.getLinux().getShell();
+      }
+
+      @Override
+      List<String[]> capture(AoservConnector conn) throws IOException, SQLException {
+        List<String[]> rows = new ArrayList<>();
+        for (Shell shell : conn.getLinux().getShell().getRows()) {
+          rows.add(new String[] {shell.getPath().toString()});
+        }
+        return rows;
+      }
+    },
+    /**
+     * Columns: id, encoding.
+     */
+    POSTGRES_ENCODING {
+      @Override
+      AoservTable<?, ?> getTable(AoservConnector conn) {
+        return conn.getPostgresql().getEncoding();
+      }
+
+      @Override
+      List<String[]> capture(AoservConnector conn) throws IOException, SQLException {
+        List<String[]> rows = new ArrayList<>();
+        for (Encoding encoding : conn.getPostgresql().getEncoding().getRows()) {
+          rows.add(new String[] {Integer.toString(encoding.getPkey()), encoding.getEncoding()});
+        }
+        return rows;
+      }
+    };
+
+    /**
+     * Gets the table whose invalidation triggers recapture of this section.
+     */
+    abstract AoservTable<?, ?> getTable(AoservConnector conn);
+
+    /**
+     * Captures the current rows from the master.
+     */
+    abstract List<String[]> capture(AoservConnector conn) throws IOException, SQLException;
+  }
+
+  /**
+   * The immutable rows of one section.
+   */
+  private static final class Data {
+
+    private final long fingerprint;
+    private final List<List<String>> rows;
+    private final Map<String, List<String>> byKey;
+
+    private Data(List<String[]> rows) {
+      this(fingerprint(rows), rows);
+    }
+
+    private Data(long fingerprint, List<String[]> rows) {
+      this.fingerprint = fingerprint;
+      List<List<String>> newRows = new ArrayList<>(rows.size());
+      Map<String, List<String>> newByKey = new HashMap<>(rows.size() * 4 / 3 + 1);
+      for (String[] row : rows) {
+        List<String> values = List.of(row);
+        newRows.add(values);
+        newByKey.put(row[0], values);
+      }
+      this.rows = Collections.unmodifiableList(newRows);
+      this.byKey = newByKey;
+    }
+  }
+
+  /**
+   * Computes the 64-bit FNV-1a hash of the rows, in order.
+   */
+  private static long fingerprint(List<String[]> rows) {
+    long hash = 0xcbf29ce484222325L;
+    for (String[] row : rows) {
+      for (String value : row) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+          hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        // Separate values
+        hash = (hash ^ 0x1f) * 0x100000001b3L;
+      }
+      // Separate rows
+      hash = (hash ^ 0x1e) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Identifies where a snapshot was captured from.  A file captured from
+   * another master, as another user, or with another protocol version is not
+   * used.
+   */
+  private static String getSource(AoservConnector conn) {
+    return conn.getHostname() + ":" + conn.getPort() + "/" + conn.getConnectAs()
+        + "@" + AoservProtocol.Version.CURRENT_VERSION.getVersion();
+  }
+
+  /**
+   * Reads a length, checking it against the bytes remaining so that a corrupt
+   * length fails before allocating.
+   */
+  private static int readLength(ByteBuffer buffer, int bytesPerItem) {
+    int length = buffer.getInt();
+    if (length < 0 || (long) length * bytesPerItem > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    return length;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[readLength(buffer, 1)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads the snapshot file.  The file is read fully into memory, so nothing
+   * holds it open or mapped once read, and it may be replaced at any time.
+   *
+   * @return  the sections or <code>null</code> when the file is missing, older than <code>maxAgeMillis</code>,
+   *          from another source, of another format version, or truncated or corrupt
+   */
+  private static Map<Section, Data> read(Path file, String source, long maxAgeMillis) throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      long createdMillis = buffer.getLong();
+      if (System.currentTimeMillis() - createdMillis > maxAgeMillis) {
+        return null;
+      }
+      if (!source.equals(readString(buffer))) {
+        return null;
+      }
+      Map<Section, Data> sections = new EnumMap<>(Section.class);
+      for (int i = 0, count = buffer.getInt(); i < count; i++) {
+        String name = readString(buffer);
+        long fingerprint = buffer.getLong();
+        int columns = buffer.getInt();
+        // Each value is at least its four-byte length
+        int rowCount = readLength(buffer, Math.max(columns, 1) * 4);
+        if (columns < 1) {
+          return null;
+        }
+        List<String[]> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+          String[] row = new String[columns];
+          for (int c = 0; c < columns; c++) {
+            row[c] = readString(buffer);
+          }
+          rows.add(row);
+        }
+        if (fingerprint(rows) != fingerprint) {
+          // Corrupt
+          return null;
+        }
+        try {
+          sections.put(Section.valueOf(name), new Data(fingerprint, rows));
+        } catch (IllegalArgumentException e) {
+          // Section no longer used
+        }
+      }
+      return sections.size() == Section.values().length ? sections : null;
+    } catch (BufferUnderflowException e) {
+      logger.log(Level.WARNING, "Ignoring truncated or corrupt snapshot: " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Atomically replaces the snapshot file.
+   */
+  private static void write(Path file, String source, Map<Section, Data> sections) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (
+        OutputStream fileOut = Files.newOutputStream(tmp);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))
+        ) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(System.currentTimeMillis());
+      writeString(out, source);
+      out.writeInt(sections.size());
+      for (Map.Entry<Section, Data> entry : sections.entrySet()) {
+        Data data = entry.getValue();
+        writeString(out, entry.getKey().name());
+        out.writeLong(data.fingerprint);
+        out.writeInt(data.rows.isEmpty() ? 1 : data.rows.get(0).size());
+        out.writeInt(data.rows.size());
+        for (List<String> row : data.rows) {
+          for (String value : row) {
+            writeString(out, value);
+          }
+        }
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Opens a snapshot, using the file when it is recent enough and from the same
+   * source, otherwise capturing from the master and writing a new file.
+   *
+   * @param  conn          the <code>AoservConnector</code> to capture from
+   * @param  file          the snapshot file
+   * @param  maxAgeMillis  the maximum age of a file that will be used without capturing from the master
+   * @param  executor      the executor that recaptures sections when the master invalidates their tables
+   */
+  public static ReferenceSnapshot open(
+      AoservConnector conn,
+      Path file,
+      long maxAgeMillis,
+      Executor executor
+  ) throws IOException, SQLException {
+    String source = getSource(conn);
+    Map<Section, Data> sections = read(file, source, maxAgeMillis);
+    if (sections == null) {
+      sections = new EnumMap<>(Section.class);
+      for (Section section : Section.values()) {
+        sections.put(section, new Data(section.capture(conn)));
+      }
+      write(file, source, sections);
+      return new ReferenceSnapshot(conn, file, source, executor, sections, false);
+    }
+    return new ReferenceSnapshot(conn, file, source, executor, sections, true);
+  }
+
+  private final AoservConnector conn;
+  private final Path file;
+  private final String source;
+  private final Map<Section, Data> sections;
+  private final boolean fromFile;
+  private final Map<Section, TableListener> listeners = new EnumMap<>(Section.class);
+
+  /**
+   * Serializes the recaptures of each section.
+   */
+  private final Map<Section, Object> refreshLocks = new EnumMap<>(Section.class);
+
+  /**
+   * Serializes writes to the file.
+   */
+  private final Object writeLock = new Object();
+
+  private ReferenceSnapshot(AoservConnector conn, Path file, String source, Executor executor, Map<Section, Data> sections, boolean fromFile) {
+    this.conn = conn;
+    this.file = file;
+    this.source = source;
+    this.sections = Collections.synchronizedMap(new EnumMap<>(sections));
+    this.fromFile = fromFile;
+    for (Section section : Section.values()) {
+      refreshLocks.put(section, new Object());
+    }
+    for (Section section : Section.values()) {
+      TableListener listener = table -> executor.execute(() -> {
+        try {
+          refresh(section);
+        } catch (IOException | SQLException e) {
+          logger.log(Level.WARNING, "Unable to refresh section: " + section, e);
+        }
+      });
+      section.getTable(conn).addTableListener(listener, 1000);
+      listeners.put(section, listener);
+    }
+  }
+
+  /**
+   * Recaptures one section, replacing it and rewriting the file when its rows have changed.
+   */
+  private void refresh(Section section) throws IOException, SQLException {
+    synchronized (refreshLocks.get(section)) {
+      Data data = new Data(section.capture(conn));
+      if (sections.get(section).fingerprint == data.fingerprint) {
+        return;
+      }
+      sections.put(section, data);
+    }
+    synchronized (writeLock) {
+      // Copy at the time of writing, so the last write has the newest of every section
+      Map<Section, Data> copy;
+      synchronized (sections) {
+        copy = new EnumMap<>(sections);
+      }
+      write(file, source, copy);
+    }
+  }
+
+  /**
+   * Checks whether the snapshot was read from a file that was still fresh, in
+   * which case none of its tables have been loaded from the master.
+   */
+  public boolean isFromFile() {
+    return fromFile;
+  }
+
+  /**
+   * Stops refreshing when the master invalidates tables.  The file remains for the next run.
+   */
+  @Override
+  public void close() {
+    for (Map.Entry<Section, TableListener> entry : listeners.entrySet()) {
+      entry.getKey().getTable(conn).removeTableListener(entry.getValue());
+    }
+  }
+
+  /**
+   * Gets all rows of a section.
+   *
+   * @return  the unmodifiable rows, each an unmodifiable list of its columns
+   */
+  public List<List<String>> getRows(Section section) {
+    return sections.get(section).rows;
+  }
+
+  /**
+   * Finds a row by its key, which is its first column, without contacting the master.
+   *
+   * @return  the unmodifiable row or <code>null</code> when not found
+   */
+  public List<String> get(Section section, String key) {
+    return sections.get(section).byKey.get(key);
+  }
+
+  /**
+   * Finds a row by its key, which is its first column.  When not found, the
+   * section is recaptured from the master once and the key is looked-up again,
+   * so a row added since the capture is still found.
+   *
+   * @return  the unmodifiable row or <code>null</code> when not found on the master either
+   */
+  public List<String> resolve(Section section, String key) throws IOException, SQLException {
+    List<String> row = get(section, key);
+    if (row == null) {
+      refresh(section);
+      row = get(section, key);
+    }
+    return row;
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One timed operation within a trace, such as a client call or a rebuild wait.
+ *
+ * <p>A span started while another is current on the same thread becomes its
+ * child.  To continue a trace in another thread, the parent is made current
+ * there with {@link #makeCurrent()}, as {@link com.aoindustries.aoserv.examples.concurrent.FanOut}
+ * does for each of its tasks.  Without an installed {@link Tracer}, spans are
+ * no-ops.</p>
+ *
+ * <p>The sampling decision is made once, at the root, and inherited by all
+ * descendants, so a trace is either recorded completely or not at all.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Span implements AutoCloseable {
+
+  private static final ThreadLocal<Span> current = new ThreadLocal<>();
+
+  /**
+   * The span used when not tracing.
+   */
+  private static final Span NOOP = new Span(null, 0, 0, 0, null, false, 0, 0);
+
+  /**
+   * Restores the previously current span when closed.
+   */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static long nextId() {
+    long id;
+    do {
+      id = ThreadLocalRandom.current().nextLong();
+    } while (id == 0);
+    return id;
+  }
+
+  /**
+   * Gets the current span of this thread.
+   *
+   * @return  the current span, or a no-op span when none
+   */
+  public static Span current() {
+    Span span = current.get();
+    return span == null ? NOOP : span;
+  }
+
+  /**
+   * Starts a new span as a child of the current span, or as the root of a new
+   * trace when there is no current span.  The new span becomes current until
+   * it is closed.
+   */
+  public static Span start(String name) {
+    Span parent = current();
+    Span span;
+    if (parent.tracer != null) {
+      span = new Span(
+          parent.tracer,
+          parent.traceId,
+          nextId(),
+          parent.spanId,
+          name,
+          parent.sampled,
+          System.currentTimeMillis() * 1000,
+          System.nanoTime()
+      );
+    } else {
+      Tracer tracer = Tracer.getInstalled();
+      if (tracer == null) {
+        return NOOP;
+      }
+      long id = nextId();
+      span = new Span(tracer, id, id, 0, name, tracer.sample(), System.currentTimeMillis() * 1000, System.nanoTime());
+    }
+    span.previous = current.get();
+    current.set(span);
+    return span;
+  }
+
+  /**
+   * Records an already completed child of the current span, such as
+   * a progress step reported with its duration.
+   */
+  static void record(String name, long startNanos, long endNanos, String key, Object value) {
+    Span parent = current();
+    if (parent.tracer != null && parent.sampled) {
+      long nowNanos = System.nanoTime();
+      Span span = new Span(
+          parent.tracer,
+          parent.traceId,
+          nextId(),
+          parent.spanId,
+          name,
+          true,
+          System.currentTimeMillis() * 1000 - (nowNanos - startNanos) / 1000,
+          startNanos
+      );
+      if (key != null) {
+        span.tag(key, value);
+      }
+      span.durationMicros = (endNanos - startNanos) / 1000;
+      span.closed = true;
+      parent.tracer.export(span);
+    }
+  }
+
+  final Tracer tracer;
+  final long traceId;
+  final long spanId;
+  final long parentId;
+  final String name;
+  final boolean sampled;
+  final long startMicros;
+  private final long startNanos;
+  private Span previous;
+  private Map<String, String> tags;
+  long durationMicros;
+  private boolean closed;
+
+  private Span(
+      Tracer tracer,
+      long traceId,
+      long spanId,
+      long parentId,
+      String name,
+      boolean sampled,
+      long startMicros,
+      long startNanos
+  ) {
+    this.tracer = tracer;
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.parentId = parentId;
+    this.name = name;
+    this.sampled = sampled;
+    this.startMicros = startMicros;
+    this.startNanos = startNanos;
+  }
+
+  /**
+   * Checks if this span will be exported.
+   */
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  /**
+   * Adds a tag.  The value is only converted to text when the span is sampled.
+   */
+  public Span tag(String key, Object value) {
+    if (sampled) {
+      synchronized (this) {
+        if (tags == null) {
+          tags = new LinkedHashMap<>();
+        }
+        tags.put(key, String.valueOf(value));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Marks this span as failed.
+   */
+  public Span error(Throwable t) {
+    return tag("error", t);
+  }
+
+  synchronized Map<String, String> getTags() {
+    return tags == null ? Collections.emptyMap() : tags;
+  }
+
+  /**
+   * Makes this span current on this thread, such as to continue its trace in a
+   * worker thread.
+   */
+  public Scope makeCurrent() {
+    if (tracer == null) {
+      return () -> {
+        // Nothing to restore
+      };
+    }
+    Span restore = current.get();
+    current.set(this);
+    return () -> current.set(restore);
+  }
+
+  /**
+   * Ends this span, restoring its parent as current and exporting it when sampled.
+   */
+  @Override
+  public void close() {
+    if (tracer == null) {
+      return;
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      durationMicros = (System.nanoTime() - startNanos) / 1000;
+    }
+    if (current.get() == this) {
+      current.set(previous);
+    }
+    if (sampled) {
+      tracer.export(this);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.trace;
+
+import com.aoindustries.aoserv.examples.Json;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports sampled {@link Span spans} to a local file in the
+ * <a href="https://zipkin.io/zipkin-api/">Zipkin v2</a> JSON format, which may
+ * be loaded directly into Zipkin, Jaeger, and other trace viewers.
+ *
+ * <p>Completed spans are only queued by the traced threads.  A single writer
+ * thread formats and writes them in batches.  When the queue is full, spans are
+ * dropped and counted instead of slowing the traced operation.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Tracer implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(Tracer.class.getName());
+
+  private static final int DEFAULT_CAPACITY = 4096;
+
+  private static volatile Tracer installed;
+
+  /**
+   * Installs the tracer used for new traces, replacing any previous tracer.
+   *
+   * @param  tracer  the tracer or <code>null</code> to stop tracing
+   */
+  public static void install(Tracer tracer) {
+    installed = tracer;
+  }
+
+  /**
+   * Gets the tracer used for new traces.
+   *
+   * @return  the tracer or <code>null</code> when not tracing
+   */
+  public static Tracer getInstalled() {
+    return installed;
+  }
+
+  /**
+   * Marks the end of the span stream.
+   */
+  private static final Object END = new Object();
+
+  private final Writer out;
+  private final String serviceName;
+  private final double sampleRate;
+  private final BlockingQueue<Object> queue;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread thread;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new tracer and starts its writer thread.
+   *
+   * @param  file         the file to write, replaced if it exists
+   * @param  serviceName  the local service name recorded with each span
+   * @param  sampleRate   the fraction of traces recorded, from <code>0</code> to <code>1</code>
+   * @param  capacity     the maximum number of spans queued before spans are dropped
+   */
+  public Tracer(Path file, String serviceName, double sampleRate, int capacity) throws IOException {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate out of range [0, 1]: " + sampleRate);
+    }
+    this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    this.serviceName = serviceName;
+    this.sampleRate = sampleRate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    out.write('[');
+    this.thread = new Thread(this::writeSpans, Tracer.class.getSimpleName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Creates a new tracer with the default capacity and starts its writer thread.
+   */
+  public Tracer(Path file, String serviceName, double sampleRate) throws IOException {
+    this(file, serviceName, sampleRate, DEFAULT_CAPACITY);
+  }
+
+  boolean sample() {
+    return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+  }
+
+  void export(Span span) {
+    if (closed || !queue.offer(span)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the number of spans dropped because the queue was full or the tracer closed.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Writes all queued spans, completes the file, and stops the writer thread.
+   * Uninstalls this tracer when installed.  Does not block when the writer
+   * thread has already stopped, in which case the file is left incomplete.
+   */
+  @Override
+  public void close() throws IOException, InterruptedException {
+    if (installed == this) {
+      installed = null;
+    }
+    if (!closed) {
+      closed = true;
+      // Wait for room in the queue only while the writer is still draining it
+      while (thread.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+        // Try again
+      }
+    }
+    thread.join();
+    out.close();
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void writeSpans() {
+    List<Object> batch = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    boolean first = true;
+    try {
+      while (true) {
+        batch.add(queue.take());
+        queue.drainTo(batch);
+        boolean end = false;
+        for (Object o : batch) {
+          if (o == END) {
+            end = true;
+          } else {
+            if (first) {
+              first = false;
+            } else {
+              sb.append(',');
+            }
+            sb.append('\n');
+            format((Span) o, sb);
+          }
+        }
+        batch.clear();
+        if (end) {
+          sb.append("\n]\n");
+        }
+        try {
+          out.append(sb);
+          out.flush();
+        } catch (IOException e) {
+          logger.log(Level.WARNING, null, e);
+        }
+        sb.setLength(0);
+        if (end) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void appendHex(long id, StringBuilder sb) {
+    String hex = Long.toHexString(id);
+    sb.append('"');
+    for (int i = hex.length(); i < 16; i++) {
+      sb.append('0');
+    }
+    sb.append(hex).append('"');
+  }
+
+  private void format(Span span, StringBuilder sb) {
+    sb.append("{\"traceId\":");
+    appendHex(span.traceId, sb);
+    sb.append(",\"id\":");
+    appendHex(span.spanId, sb);
+    if (span.parentId != 0) {
+      sb.append(",\"parentId\":");
+      appendHex(span.parentId, sb);
+    }
+    sb.append(",\"name\":");
+    Json.appendString(span.name, sb);
+    sb.append(",\"timestamp\":").append(span.startMicros);
+    sb.append(",\"duration\":").append(Math.max(1, span.durationMicros));
+    sb.append(",\"localEndpoint\":{\"serviceName\":");
+    Json.appendString(serviceName, sb);
+    sb.append('}');
+    Map<String, String> tags = span.getTags();
+    if (!tags.isEmpty()) {
+      sb.append(",\"tags\":{");
+      boolean firstTag = true;
+      for (Map.Entry<String, String> entry : tags.entrySet()) {
+        if (firstTag) {
+          firstTag = false;
+        } else {
+          sb.append(',');
+        }
+        Json.appendString(entry.getKey(), sb);
+        sb.append(':');
+        Json.appendString(entry.getValue(), sb);
+      }
+      sb.append('}');
+    }
+    sb.append('}');
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.trace;
+
+import com.aoindustries.aoserv.examples.progress.ProgressListener;
+import com.aoindustries.aoserv.examples.progress.Step;
+
+/**
+ * Records each progress step reported with its duration as a child of the span
+ * that was current when the listener was created, then forwards the step to
+ * another listener.  The span ends as the step is reported and lasts the
+ * reported duration, so concurrent steps are each timed correctly.  A step
+ * reported without its duration, such as one marking the start of a wait, is
+ * forwarded without a span.
+ *
+ * <p>This is for operations that do not start their own spans;
+ * {@link com.aoindustries.aoserv.examples.CreateAccount} traces its calls
+ * directly.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TracingProgressListener implements ProgressListener {
+
+  /**
+   * Wraps a listener to also record spans under the current span.
+   *
+   * @param  delegate  the listener to forward to, or <code>null</code> for none
+   *
+   * @return  the wrapped listener, or <code>delegate</code> itself when the current span is not sampled
+   */
+  public static ProgressListener wrap(ProgressListener delegate) {
+    Span parent = Span.current();
+    if (!parent.isSampled()) {
+      return delegate;
+    }
+    return new TracingProgressListener(delegate, parent);
+  }
+
+  private final ProgressListener delegate;
+  private final Span parent;
+
+  private TracingProgressListener(ProgressListener delegate, Span parent) {
+    this.delegate = delegate;
+    this.parent = parent;
+  }
+
+  @Override
+  public void progress(Step step, Object id, long elapsedNanos) {
+    if (delegate != null) {
+      delegate.progress(step, id, elapsedNanos);
+    }
+  }
+
+  @Override
+  public void progress(Step step, Object id, long elapsedNanos, long stepNanos) {
+    long nowNanos = System.nanoTime();
+    try (Span.Scope scope = parent.makeCurrent()) {
+      Span.record(step.name(), nowNanos - stepNanos, nowNanos, id == null ? null : "id", id);
+    }
+    if (delegate != null) {
+      delegate.progress(step, id, elapsedNanos, stepNanos);
+    }
+  }
+}
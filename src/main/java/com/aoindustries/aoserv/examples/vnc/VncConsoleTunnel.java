@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2009-2013, 2017, 2018, 2019, 2020, 2021, 2022, 2023  AO Industries, Inc.
+ * Copyright (C) 2009-2013, 2017, 2018, 2019, 2020, 2021, 2022, 2023, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -35,6 +35,7 @@ import com.aoindustries.aoserv.client.net.Host;
 import com.aoindustries.aoserv.daemon.client.AoservDaemonConnection;
 import com.aoindustries.aoserv.daemon.client.AoservDaemonConnector;
 import com.aoindustries.aoserv.daemon.client.AoservDaemonProtocol;
+import com.aoindustries.aoserv.examples.jfr.VncTunnelEvent;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -109,10 +110,18 @@ public class VncConsoleTunnel implements Runnable {
         try (ServerSocket serverSocket = new ServerSocket(listenPort, 50, listenAddress)) {
           while (!Thread.currentThread().isInterrupted()) {
             final Socket socket = serverSocket.accept();
+            new VncTunnelEvent().end(VncTunnelEvent.Phase.ACCEPT, virtualServer, socket.getRemoteSocketAddress(), 0);
+            final VncTunnelEvent sessionEvent = new VncTunnelEvent();
+            sessionEvent.begin();
             new Thread(
                 () -> {
                   try {
+                    VncTunnelEvent accessEvent = new VncTunnelEvent();
+                    accessEvent.begin();
                     Server.DaemonAccess daemonAccess = virtualServer.requestVncConsoleAccess();
+                    accessEvent.end(VncTunnelEvent.Phase.ACCESS_GRANT, virtualServer, socket.getRemoteSocketAddress(), 0);
+                    VncTunnelEvent connectEvent = new VncTunnelEvent();
+                    connectEvent.begin();
                     AoservDaemonConnector daemonConnector = AoservDaemonConnector.getConnector(
                         daemonAccess.getHost(),
                         com.aoapps.net.InetAddress.UNSPECIFIED_IPV4,
@@ -132,6 +141,7 @@ public class VncConsoleTunnel implements Runnable {
 
                         final StreamableInput daemonIn = daemonConn.getResponseIn();
                         int result = daemonIn.read();
+                        connectEvent.end(VncTunnelEvent.Phase.DAEMON_CONNECT, virtualServer, socket.getRemoteSocketAddress(), 0);
                         if (result == AoservDaemonProtocol.NEXT) {
                           final OutputStream socketOut = socket.getOutputStream();
                           final InputStream socketIn = socket.getInputStream();
@@ -139,14 +149,19 @@ public class VncConsoleTunnel implements Runnable {
                           Thread inThread = new Thread(
                               () -> {
                                 try {
+                                  VncTunnelEvent relayEvent = new VncTunnelEvent();
+                                  relayEvent.begin();
+                                  long relayed = 0;
                                   try {
                                     byte[] buff = new byte[4096];
                                     int ret;
                                     while ((ret = socketIn.read(buff, 0, 4096)) != -1) {
                                       daemonOut.write(buff, 0, ret);
                                       daemonOut.flush();
+                                      relayed += ret;
                                     }
                                   } finally {
+                                    relayEvent.end(VncTunnelEvent.Phase.RELAY_TO_DAEMON, virtualServer, socket.getRemoteSocketAddress(), relayed);
                                     // Always close after VNC tunnel since this is a connection-terminal command
                                     daemonConn.abort();
                                   }
@@ -163,11 +178,19 @@ public class VncConsoleTunnel implements Runnable {
                           inThread.start();
                           // try {
                           // daemonIn -> socketOut in this thread
-                          byte[] buff = new byte[4096];
-                          int ret;
-                          while ((ret = daemonIn.read(buff, 0, 4096)) != -1) {
-                            socketOut.write(buff, 0, ret);
-                            socketOut.flush();
+                          VncTunnelEvent relayEvent = new VncTunnelEvent();
+                          relayEvent.begin();
+                          long relayed = 0;
+                          try {
+                            byte[] buff = new byte[4096];
+                            int ret;
+                            while ((ret = daemonIn.read(buff, 0, 4096)) != -1) {
+                              socketOut.write(buff, 0, ret);
+                              socketOut.flush();
+                              relayed += ret;
+                            }
+                          } finally {
+                            relayEvent.end(VncTunnelEvent.Phase.RELAY_FROM_DAEMON, virtualServer, socket.getRemoteSocketAddress(), relayed);
                           }
                           // } finally {
                           // Let the in thread complete its work before closing streams
@@ -201,6 +224,7 @@ public class VncConsoleTunnel implements Runnable {
                     } catch (Throwable t) {
                       logger.log(Level.SEVERE, null, t);
                     }
+                    sessionEvent.end(VncTunnelEvent.Phase.CLOSE, virtualServer, socket.getRemoteSocketAddress(), 0);
                   }
                 },
                 VncConsoleTunnel.class.getSimpleName() + ": " + socket.getInetAddress() + ":" + socket.getPort()
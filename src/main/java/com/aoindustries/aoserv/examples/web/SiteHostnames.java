@@ -0,0 +1,207 @@
+/*
+ * aoserv-examples - Automation examples for the AOServ Platform.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of aoserv-examples.
+ *
+ * aoserv-examples is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aoserv-examples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with aoserv-examples.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.aoserv.examples.web;
+
+import com.aoapps.net.DomainName;
+import com.aoindustries.aoserv.client.linux.Server;
+import com.aoindustries.aoserv.client.web.Site;
+import com.aoindustries.aoserv.client.web.VirtualHost;
+import com.aoindustries.aoserv.client.web.VirtualHostName;
+import com.aoindustries.aoserv.examples.concurrent.FanOut;
+import com.aoindustries.aoserv.examples.concurrent.Outcome;
+import com.aoindustries.aoserv.examples.concurrent.RebuildNotifier;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Sets the hostnames of a web site, such as the customer domains of a multi-tenant
+ * site with thousands of alternate names.
+ *
+ * <p>The desired hostnames are compared to those of each of the site's binds, and
+ * only the additions and removals are applied.  Changes are applied concurrently in
+ * batches, with the server waited on once per batch for its web site rebuild instead
+ * of once per hostname.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class SiteHostnames {
+
+  /** Make no instances. */
+  private SiteHostnames() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The addition or removal of one hostname on one bind of a site.
+   */
+  public static final class Change {
+
+    private final VirtualHost bind;
+    private final DomainName hostname;
+    private final VirtualHostName existing;
+
+    private Change(VirtualHost bind, DomainName hostname, VirtualHostName existing) {
+      this.bind = bind;
+      this.hostname = hostname;
+      this.existing = existing;
+    }
+
+    @Override
+    public String toString() {
+      return (existing == null ? "+" : "-") + hostname + " on " + bind;
+    }
+
+    /**
+     * Gets the bind the hostname is added to or removed from.
+     */
+    public VirtualHost getVirtualHost() {
+      return bind;
+    }
+
+    /**
+     * Gets the hostname being added or removed.
+     */
+    public DomainName getHostname() {
+      return hostname;
+    }
+
+    /**
+     * Checks if the hostname is being added.
+     */
+    public boolean isAddition() {
+      return existing == null;
+    }
+
+    private void apply() throws IOException, SQLException {
+      if (existing == null) {
+        bind.addVirtualHostName(hostname);
+      } else {
+        existing.remove();
+      }
+    }
+  }
+
+  /**
+   * Finds the changes that give every bind of the site exactly the given hostnames.
+   * The primary hostname of each bind is never removed.
+   *
+   * @param  site       the site to compare
+   * @param  hostnames  the desired hostnames of each bind
+   *
+   * @return  the additions followed by the removals
+   */
+  public static List<Change> diff(Site site, Set<DomainName> hostnames) throws IOException, SQLException {
+    List<Change> additions = new ArrayList<>();
+    List<Change> removals = new ArrayList<>();
+    for (VirtualHost bind : site.getHttpdSiteBinds()) {
+      Set<DomainName> current = new HashSet<>();
+      for (VirtualHostName url : bind.getVirtualHostNames()) {
+        DomainName hostname = url.getHostname();
+        current.add(hostname);
+        if (!url.isPrimary() && !hostnames.contains(hostname)) {
+          removals.add(new Change(bind, hostname, url));
+        }
+      }
+      for (DomainName hostname : hostnames) {
+        if (!current.contains(hostname)) {
+          additions.add(new Change(bind, hostname, null));
+        }
+      }
+    }
+    List<Change> changes = new ArrayList<>(additions.size() + removals.size());
+    changes.addAll(additions);
+    changes.addAll(removals);
+    return changes;
+  }
+
+  /**
+   * Sets the hostnames of every bind of the site, applying only the differences.
+   * The changes within a batch are applied concurrently, then the server is waited
+   * on once for the web site rebuild before the next batch.
+   * The failure of one change does not stop the others.
+   *
+   * @param  executor   the executor that applies the changes
+   * @param  site       the site to update
+   * @param  hostnames  the desired hostnames of each bind
+   * @param  batchSize  the maximum number of changes per rebuild
+   *
+   * @return  the outcome of each change, in the order applied
+   *
+   * @see  #diff(com.aoindustries.aoserv.client.web.Site, java.util.Set)
+   */
+  public static Map<Change, Outcome<Void>> setHostnames(
+      Executor executor,
+      Site site,
+      Set<DomainName> hostnames,
+      int batchSize
+  ) throws IOException, SQLException, InterruptedException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize < 1: " + batchSize);
+    }
+    List<Change> changes = diff(site, hostnames);
+    Server server = site.getLinuxServer();
+    Map<Change, Outcome<Void>> outcomes = new LinkedHashMap<>(changes.size() * 4 / 3 + 1);
+    for (int from = 0, size = changes.size(); from < size; from += batchSize) {
+      // Apply the batch concurrently
+      Map<Change, Outcome<Void>> applied = FanOut.run(
+          executor,
+          changes.subList(from, Math.min(from + batchSize, size)),
+          change -> {
+            change.apply();
+            return null;
+          }
+      );
+      boolean anyApplied = false;
+      for (Outcome<Void> outcome : applied.values()) {
+        if (outcome.isSuccess()) {
+          anyApplied = true;
+          break;
+        }
+      }
+      if (anyApplied) {
+        // Wait for rebuild, once for the batch
+        Outcome<Object> rebuilt = FanOut.call(target -> {
+          RebuildNotifier.Type.HTTPD_SITE.waitFor(target);
+          return null;
+        }, server);
+        if (!rebuilt.isSuccess()) {
+          for (Map.Entry<Change, Outcome<Void>> entry : applied.entrySet()) {
+            if (entry.getValue().isSuccess()) {
+              entry.setValue(Outcome.failure(rebuilt.getError(), rebuilt.getElapsedNanos()));
+            }
+          }
+        }
+      }
+      outcomes.putAll(applied);
+    }
+    return outcomes;
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * aoserv-examples - Automation examples for the AOServ Platform.
- * Copyright (C) 2021, 2022, 2023  AO Industries, Inc.
+ * Copyright (C) 2021, 2022, 2023, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -22,11 +22,21 @@
  */
 module com.aoindustries.aoserv.examples {
   exports com.aoindustries.aoserv.examples;
+  exports com.aoindustries.aoserv.examples.concurrent;
   exports com.aoindustries.aoserv.examples.email;
   exports com.aoindustries.aoserv.examples.ftp;
+  exports com.aoindustries.aoserv.examples.jfr;
+  exports com.aoindustries.aoserv.examples.launcher;
   exports com.aoindustries.aoserv.examples.mysql;
+  exports com.aoindustries.aoserv.examples.placement;
   exports com.aoindustries.aoserv.examples.postgres;
+  exports com.aoindustries.aoserv.examples.progress;
+  exports com.aoindustries.aoserv.examples.repl;
+  exports com.aoindustries.aoserv.examples.report;
+  exports com.aoindustries.aoserv.examples.snapshot;
+  exports com.aoindustries.aoserv.examples.trace;
   exports com.aoindustries.aoserv.examples.vnc;
+  exports com.aoindustries.aoserv.examples.web;
   // Direct
   requires com.aoapps.hodgepodge; // <groupId>com.aoapps</groupId><artifactId>ao-hodgepodge</artifactId>
   requires com.aoapps.lang; // <groupId>com.aoapps</groupId><artifactId>ao-lang</artifactId>
@@ -37,4 +47,6 @@ module com.aoindustries.aoserv.examples {
   requires com.aoindustries.aoserv.daemon.client; // <groupId>com.aoindustries</groupId><artifactId>aoserv-daemon-client</artifactId>
   // Java SE
   requires java.sql;
+  // JDK
+  requires jdk.jfr;
 }